@@ -0,0 +1,71 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.example.response.CartResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Size and cost of the cart response in every format the controller can answer with,
+// the gzip variant is what a JSON client gets once the response is above the compression threshold
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CartEncodingBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    String format;
+
+    @Param({"10", "100", "1000"})
+    int numberOfLines;
+
+    ObjectMapper objectMapper;
+
+    CartResponse cartResponse;
+
+    byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "cbor" -> new ObjectMapper(new CBORFactory());
+            case "smile" -> new ObjectMapper(new SmileFactory());
+            default -> new ObjectMapper();
+        };
+        cartResponse = new CartResponse(CartFixtures.cart(numberOfLines));
+        encoded = objectMapper.writeValueAsBytes(cartResponse);
+        System.out.printf("%n%s, %d lines: %d bytes, %d bytes gzipped%n",
+                format, numberOfLines, encoded.length, gzip(encoded).length);
+    }
+
+    @Benchmark
+    public byte[] serializeCart() throws IOException {
+        return objectMapper.writeValueAsBytes(cartResponse);
+    }
+
+    @Benchmark
+    public CartResponse deserializeCart() throws IOException {
+        return objectMapper.readValue(encoded, CartResponse.class);
+    }
+
+    @Benchmark
+    public byte[] serializeAndGzipCart() throws IOException {
+        return gzip(objectMapper.writeValueAsBytes(cartResponse));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+            gzipOutputStream.write(bytes);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.benchmark;
+
+import org.example.entity.Cart;
+import org.example.entity.Product;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateProductRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Realistic carts built in memory, without a database
+final class CartFixtures {
+
+    private CartFixtures() {
+    }
+
+    static CreateProductRequest productRequest(int index) {
+        CreateProductRequest createProductRequest = new CreateProductRequest();
+        createProductRequest.setProductName("Product number " + index);
+        createProductRequest.setProductPrice(99 + index % 50 * 100);
+        createProductRequest.setProductQuantity(1 + index % 5);
+        return createProductRequest;
+    }
+
+    static CreateCartRequest cartRequest(int numberOfLines) {
+        List<CreateProductRequest> addedProducts = new ArrayList<>();
+        for (int i = 0; i < numberOfLines; i++) {
+            addedProducts.add(productRequest(i));
+        }
+        return CreateCartRequest.builder().addedProducts(addedProducts).build();
+    }
+
+    static Cart cart(int numberOfLines) {
+        Cart cart = new Cart();
+        cart.setId(1L);
+        List<Product> addedProducts = new ArrayList<>();
+        long totalPrice = 0L;
+        for (int i = 0; i < numberOfLines; i++) {
+            Product product = new Product(productRequest(i));
+            product.setId(i + 1);
+            product.setCart(cart);
+            addedProducts.add(product);
+            totalPrice += product.getProductPrice() * product.getProductQuantity();
+        }
+        cart.setAddedProducts(addedProducts);
+        cart.setTotalPrice(totalPrice);
+        return cart;
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.response.CartResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// JSON serialization of large carts, as done by the controller for every cart response
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CartJsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int numberOfLines;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    CartResponse cartResponse;
+
+    byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        cartResponse = new CartResponse(CartFixtures.cart(numberOfLines));
+        json = objectMapper.writeValueAsBytes(cartResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeCart() throws IOException {
+        return objectMapper.writeValueAsBytes(cartResponse);
+    }
+
+    @Benchmark
+    public CartResponse deserializeCart() throws IOException {
+        return objectMapper.readValue(json, CartResponse.class);
+    }
+}
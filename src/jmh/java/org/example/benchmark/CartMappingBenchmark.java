@@ -0,0 +1,65 @@
+package org.example.benchmark;
+
+import org.example.entity.Cart;
+import org.example.request.CreateCartRequest;
+import org.example.response.CartResponse;
+import org.example.response.ProductResponse;
+import org.example.service.CartService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// In-memory hot paths of the cart domain: entity to response mapping, response equality
+// and the total price computed while processing a CreateCartRequest
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CartMappingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int numberOfLines;
+
+    Cart cart;
+
+    CreateCartRequest createCartRequest;
+
+    ProductResponse productResponse;
+
+    ProductResponse equalProductResponse;
+
+    @Setup
+    public void setUp() {
+        cart = CartFixtures.cart(numberOfLines);
+        createCartRequest = CartFixtures.cartRequest(numberOfLines);
+        productResponse = new ProductResponse(cart.getAddedProducts().get(0));
+        equalProductResponse = new ProductResponse(cart.getAddedProducts().get(0));
+    }
+
+    @Benchmark
+    public CartResponse cartResponseMapping() {
+        return new CartResponse(cart);
+    }
+
+    @Benchmark
+    public boolean productResponseEquals() {
+        return productResponse.equals(equalProductResponse);
+    }
+
+    @Benchmark
+    public int productResponseHashCode() {
+        return productResponse.hashCode();
+    }
+
+    @Benchmark
+    public long createCartRequestTotalPrice() {
+        return CartService.totalPrice(createCartRequest.getAddedProducts());
+    }
+
+    @Benchmark
+    public Cart createCartRequestToCart() {
+        return new Cart(createCartRequest);
+    }
+}
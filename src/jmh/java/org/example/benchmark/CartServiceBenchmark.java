@@ -0,0 +1,84 @@
+package org.example.benchmark;
+
+import org.example.Main;
+import org.example.entity.Cart;
+import org.example.request.CreateCartRequest;
+import org.example.response.CartResponse;
+import org.example.service.CartService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+// End-to-end CartService calls against an embedded H2 database in MySQL mode.
+// The JDBC batch size compares createAndDeleteCart's 50 product inserts sent one by one and in one batch
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CartServiceBenchmark {
+
+    final static int number_of_lines = 50;
+
+    @Param({"1", "50"})
+    int jdbcBatchSize;
+
+    ConfigurableApplicationContext context;
+
+    CartService cartService;
+
+    CreateCartRequest createCartRequest;
+
+    long cartId;
+
+    long productId;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(Main.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database=H2",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.flyway.enabled=false",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize,
+                        "--logging.level.root=WARN");
+        cartService = context.getBean(CartService.class);
+        createCartRequest = CartFixtures.cartRequest(number_of_lines);
+        Cart cart = cartService.createCart(createCartRequest);
+        cartId = cart.getId();
+        productId = cart.getAddedProducts().get(0).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CartResponse getSingleCartByIdFromDatabase() {
+        return new CartResponse(cartService.getSingleCartById(cartId));
+    }
+
+    @Benchmark
+    public CartResponse getCartResponseByIdCached() {
+        return cartService.getCartResponseById(cartId);
+    }
+
+    @Benchmark
+    public String addSingleProduct() {
+        return cartService.addSingleProduct(productId);
+    }
+
+    @Benchmark
+    public String createAndDeleteCart() {
+        return cartService.deleteCart(cartService.createCart(createCartRequest).getId());
+    }
+}
@@ -2,12 +2,16 @@ package org.example;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.retry.annotation.EnableRetry;
 
-@SpringBootApplication
-@ComponentScan({"org.example.controller", "org.example.service"})
+// The servlet application runs on JPA, the R2DBC stack is only used by org.example.reactive.ReactiveMain
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
+@EnableRetry
+@ComponentScan({"org.example.controller", "org.example.service", "org.example.cache", "org.example.metrics", "org.example.config", "org.example.buffer"})
 @EntityScan("org.example.entity")
 @EnableJpaRepositories(basePackages = "org.example.repository")
 public class Main {
@@ -0,0 +1,342 @@
+package org.example.buffer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.config.ReadWriteRoutingDataSource;
+import org.example.entity.Product;
+import org.example.repository.ProductRepository;
+import org.example.response.CartResponse;
+import org.example.response.CartVersion;
+import org.example.response.ProductResponse;
+import org.example.service.CartInvalidation;
+import org.example.service.CartService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Collects the +1/-1 quantity clicks per product in memory and writes them as two JDBC batches,
+// cart totals and product quantities, every window or as soon as max-pending clicks are waiting.
+// Enabled with cart.quantity-buffer.enabled=true, QuantityChangeBufferAspect routes CartService through it
+@Component
+@ConditionalOnProperty(name = "cart.quantity-buffer.enabled", havingValue = "true")
+public class QuantityChangeBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(QuantityChangeBuffer.class);
+
+    // Both statements only apply while the product exists and keeps at least one unit, so clicks on a product
+    // that was removed in the meantime are dropped. The cart statement runs first and sees the old quantity
+    static final String CART_TOTAL_UPDATE = "UPDATE cart SET total_price = total_price + " +
+            "? * (SELECT product_price FROM product WHERE product_id = ?), version = version + 1, last_modified = ? " +
+            "WHERE cart_id = (SELECT cart_id FROM product WHERE product_id = ? AND product_quantity + ? >= 1)";
+
+    // last_modified is bound in UTC like Hibernate binds Instant
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    static final String PRODUCT_QUANTITY_UPDATE = "UPDATE product SET product_quantity = product_quantity + ?, version = version + 1 " +
+            "WHERE product_id = ? AND product_quantity + ? >= 1";
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    CartInvalidation cartInvalidation;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration window;
+
+    private final int maxPending;
+
+    // product id -> clicks not written yet
+    private final Map<Long, PendingChange> pending = new ConcurrentHashMap<>();
+
+    // cart id -> number of clicks not written yet, +1 and -1 alike, so that each click changes the cart's tag
+    private final Map<Long, AtomicInteger> pendingClicksByCart = new ConcurrentHashMap<>();
+
+    private final AtomicInteger pendingClicks = new AtomicInteger();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    // Clicks and reads share it, a flush holds it alone from taking the clicks until the cache is invalidated,
+    // so a read never sees a click twice or not at all
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public QuantityChangeBuffer(PlatformTransactionManager transactionManager,
+                                @Value("${cart.quantity-buffer.window:PT0.1S}") Duration window,
+                                @Value("${cart.quantity-buffer.max-pending:1000}") int maxPending) {
+        // Own transaction, a flush must be committed before the lock is released
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.window = window;
+        this.maxPending = maxPending;
+    }
+
+    @PostConstruct
+    void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "quantity-buffer-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, window.toMillis(), window.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Beans are destroyed before the ones they depend on, so the repositories and the data source are still open here
+    @PreDestroy
+    void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    // Returns false instead of buffering a click that would take the last unit or that changes a catalog line,
+    // which has to reserve or release stock, those are left to the caller.
+    // The product is read once per window, from the primary as its quantity is written back,
+    // later clicks on it touch no connection
+    public boolean tryChange(long productId, int delta) {
+        lock.readLock().lock();
+        try {
+            PendingChange change = pending.get(productId);
+            if (change == null) {
+                Product product = ReadWriteRoutingDataSource.onPrimary(() -> productRepository.findById(productId))
+                        .orElseThrow(() -> new IllegalArgumentException("Product does not exist"));
+                if (product.getCart() == null) {
+                    throw new IllegalArgumentException("No cart with given ID exists");
+                }
+                if (product.getCatalogItemId() != null) {
+                    return false;
+                }
+                change = pending.computeIfAbsent(productId, id -> new PendingChange(product.getCart().getId(), product.getProductQuantity()));
+            }
+            if (!change.add(delta)) {
+                return false;
+            }
+            // Counted after the delta is added, a read that sees the count sees the click too
+            pendingClicksByCart.computeIfAbsent(change.cartId, cartId -> new AtomicInteger()).incrementAndGet();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (pendingClicks.incrementAndGet() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+        return true;
+    }
+
+    // Runs the read and adds the clicks that are not written yet to its answer
+    public CartResponse read(CartReader<CartResponse> reader) throws Throwable {
+        lock.readLock().lock();
+        try {
+            return withPendingChanges(reader.read());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Runs the version lookup and adds the number of clicks on the cart that are not written yet, nothing is written
+    public CartVersion readVersion(long cartId, CartReader<CartVersion> reader) throws Throwable {
+        lock.readLock().lock();
+        try {
+            return new CartVersion(reader.read().version(), pendingClicks(cartId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void flush() {
+        flushCarts(null);
+    }
+
+    // Writes the waiting clicks of one cart only, before a change of that cart
+    public void flush(long cartId) {
+        flushCarts(Set.of(cartId));
+    }
+
+    // Writes the waiting clicks of the given carts and of the carts the given products are in
+    public void flush(Collection<Long> cartIds, Collection<Long> productIds) {
+        Set<Long> flushedCarts = new HashSet<>(cartIds);
+        for (Long productId : productIds) {
+            PendingChange change = pending.get(productId);
+            if (change != null) {
+                flushedCarts.add(change.cartId);
+            }
+        }
+        if (!flushedCarts.isEmpty()) {
+            flushCarts(flushedCarts);
+        }
+    }
+
+    // Null writes the clicks of every cart
+    private void flushCarts(Set<Long> flushedCarts) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            List<Map.Entry<Long, PendingChange>> flushed = new ArrayList<>();
+            List<Map.Entry<Long, PendingChange>> changes = new ArrayList<>();
+            for (Map.Entry<Long, PendingChange> entry : pending.entrySet()) {
+                if (flushedCarts == null || flushedCarts.contains(entry.getValue().cartId)) {
+                    flushed.add(entry);
+                    if (entry.getValue().delta.get() != 0) {
+                        changes.add(entry);
+                    }
+                }
+            }
+            if (!changes.isEmpty()) {
+                Timestamp now = Timestamp.from(Instant.now());
+                int[][] updatedProducts = transactionTemplate.execute(status -> {
+                    jdbcTemplate.batchUpdate(CART_TOTAL_UPDATE, changes, changes.size(), (statement, change) -> {
+                        statement.setInt(1, change.getValue().delta.get());
+                        statement.setLong(2, change.getKey());
+                        statement.setTimestamp(3, now, Calendar.getInstance(UTC));
+                        statement.setLong(4, change.getKey());
+                        statement.setInt(5, change.getValue().delta.get());
+                    });
+                    return jdbcTemplate.batchUpdate(PRODUCT_QUANTITY_UPDATE, changes, changes.size(), (statement, change) -> {
+                        statement.setInt(1, change.getValue().delta.get());
+                        statement.setLong(2, change.getKey());
+                        statement.setInt(3, change.getValue().delta.get());
+                    });
+                });
+                logDroppedChanges(updatedProducts);
+            }
+            flushed.forEach(entry -> {
+                pending.remove(entry.getKey());
+                AtomicInteger cartClicks = pendingClicksByCart.remove(entry.getValue().cartId);
+                if (cartClicks != null) {
+                    pendingClicks.addAndGet(-cartClicks.get());
+                }
+            });
+            changes.forEach(change -> cartInvalidation.invalidateAfterCommit(change.getValue().cartId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Failed flushes keep their clicks, the next window tries again
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Writing buffered quantity changes failed, retrying in {}", window, e);
+        }
+    }
+
+    private static void logDroppedChanges(int[][] updatedProducts) {
+        int dropped = 0;
+        for (int[] batch : updatedProducts) {
+            for (int updated : batch) {
+                if (updated == 0) {
+                    dropped++;
+                }
+            }
+        }
+        if (dropped > 0) {
+            log.warn("Dropped buffered quantity changes of {} products that were removed or changed elsewhere", dropped);
+        }
+    }
+
+    private int pendingClicks(long cartId) {
+        AtomicInteger cartClicks = pendingClicksByCart.get(cartId);
+        return cartClicks == null ? 0 : cartClicks.get();
+    }
+
+    // The count is taken before the deltas, so the answer holds at least the clicks its tag counts
+    private CartResponse withPendingChanges(CartResponse cartResponse) {
+        int pendingChanges = pendingClicks(cartResponse.getId());
+        if (pendingChanges == 0 || cartResponse.getAddedProducts() == null) {
+            return cartResponse;
+        }
+        List<ProductResponse> addedProducts = new ArrayList<>();
+        long totalPrice = cartResponse.getTotalPrice();
+        for (ProductResponse product : cartResponse.getAddedProducts()) {
+            PendingChange change = pending.get(product.getId());
+            int delta = change == null ? 0 : change.delta.get();
+            if (delta == 0) {
+                addedProducts.add(product);
+                continue;
+            }
+            // Copies, the answer may be a cached snapshot that other readers share
+            ProductResponse changedProduct = new ProductResponse();
+            changedProduct.setId(product.getId());
+            changedProduct.setProductName(product.getProductName());
+            changedProduct.setProductPrice(product.getProductPrice());
+            changedProduct.setProductQuantity(product.getProductQuantity() + delta);
+            changedProduct.setCatalogItemId(product.getCatalogItemId());
+            addedProducts.add(changedProduct);
+            totalPrice = Math.addExact(totalPrice, CartService.lineTotal(product.getProductPrice(), delta));
+        }
+        CartResponse changedCart = new CartResponse();
+        changedCart.setId(cartResponse.getId());
+        changedCart.setTotalPrice(totalPrice);
+        changedCart.setAddedProducts(addedProducts);
+        changedCart.setVersion(cartResponse.getVersion());
+        changedCart.setPendingChanges(pendingChanges);
+        return changedCart;
+    }
+
+    public interface CartReader<T> {
+        T read() throws Throwable;
+    }
+
+    private static class PendingChange {
+
+        private final long cartId;
+
+        // As read with the first click of the window
+        private final int quantity;
+
+        private final AtomicInteger delta = new AtomicInteger();
+
+        PendingChange(long cartId, int quantity) {
+            this.cartId = cartId;
+            this.quantity = quantity;
+        }
+
+        boolean add(int change) {
+            int current;
+            do {
+                current = delta.get();
+                if (quantity + current + change < 1) {
+                    return false;
+                }
+            } while (!delta.compareAndSet(current, current + change));
+            return true;
+        }
+    }
+}
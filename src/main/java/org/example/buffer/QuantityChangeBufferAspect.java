@@ -0,0 +1,95 @@
+package org.example.buffer;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.example.request.CartOperationRequest;
+import org.example.request.UpdateCartRequest;
+import org.example.response.CartResponse;
+import org.example.response.CartVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Sends the +1/-1 clicks of CartService to the QuantityChangeBuffer. It runs outside the retry and transaction
+// advice, so a buffered click opens no transaction. A CartService call that changes a cart writes the waiting
+// clicks of that cart first. Reads write nothing: single cart reads and version lookups see the clicks added
+// to their answer, pages and streams of many carts see them once the window is written
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 3)
+@ConditionalOnProperty(name = "cart.quantity-buffer.enabled", havingValue = "true")
+public class QuantityChangeBufferAspect {
+
+    @Autowired
+    QuantityChangeBuffer quantityChangeBuffer;
+
+    // Catalog lines reserve stock, CartService handles them once the waiting clicks are written
+    @Around("execution(public String org.example.service.CartService.addSingleProduct(long)) && args(productId)")
+    public Object addSingleProduct(ProceedingJoinPoint joinPoint, long productId) throws Throwable {
+        if (quantityChangeBuffer.tryChange(productId, 1)) {
+            return "Single product added to cart successfully";
+        }
+        quantityChangeBuffer.flush(List.of(), List.of(productId));
+        return joinPoint.proceed();
+    }
+
+    // Taking the last unit removes the whole product and catalog lines release stock,
+    // CartService does both once the waiting clicks are written
+    @Around("execution(public String org.example.service.CartService.deleteSingleProductFromCart(long)) && args(productId)")
+    public Object deleteSingleProductFromCart(ProceedingJoinPoint joinPoint, long productId) throws Throwable {
+        if (quantityChangeBuffer.tryChange(productId, -1)) {
+            return "Single product removed from cart successfully";
+        }
+        quantityChangeBuffer.flush(List.of(), List.of(productId));
+        return joinPoint.proceed();
+    }
+
+    @Around("execution(public org.example.response.CartResponse org.example.service.CartService.getCartResponseById(long))")
+    public Object getCartResponseById(ProceedingJoinPoint joinPoint) throws Throwable {
+        return quantityChangeBuffer.read(() -> (CartResponse) joinPoint.proceed());
+    }
+
+    @Around("execution(public org.example.response.CartVersion org.example.service.CartService.getCartVersion(long)) && args(cartId)")
+    public Object getCartVersion(ProceedingJoinPoint joinPoint, long cartId) throws Throwable {
+        return quantityChangeBuffer.readVersion(cartId, () -> (CartVersion) joinPoint.proceed());
+    }
+
+    @Before("execution(public * org.example.service.CartService.addProduct(..)) && args(updateCartRequest)")
+    public void flushBeforeAddProduct(UpdateCartRequest updateCartRequest) {
+        quantityChangeBuffer.flush(updateCartRequest.getId());
+    }
+
+    @Before("(execution(public * org.example.service.CartService.deleteCart(long)) " +
+            "|| execution(public * org.example.service.CartService.clearCart(long))) && args(cartId)")
+    public void flushBeforeCartChange(long cartId) {
+        quantityChangeBuffer.flush(cartId);
+    }
+
+    @Before("execution(public * org.example.service.CartService.deleteProductFromCart(long)) && args(productId)")
+    public void flushBeforeProductChange(long productId) {
+        quantityChangeBuffer.flush(List.of(), List.of(productId));
+    }
+
+    // Every cart the operations name, directly or through one of its products, in one flush
+    @Before("execution(public * org.example.service.CartService.applyOperations(..)) && args(operations)")
+    public void flushBeforeOperations(List<CartOperationRequest> operations) {
+        List<Long> cartIds = new ArrayList<>();
+        List<Long> productIds = new ArrayList<>();
+        for (CartOperationRequest operation : operations) {
+            if (operation.getCartId() != null) {
+                cartIds.add(operation.getCartId());
+            }
+            if (operation.getProductId() != null) {
+                productIds.add(operation.getProductId());
+            }
+        }
+        quantityChangeBuffer.flush(cartIds, productIds);
+    }
+}
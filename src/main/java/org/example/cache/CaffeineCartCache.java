@@ -0,0 +1,60 @@
+package org.example.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.example.response.CartResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.function.LongFunction;
+
+// In-process cache with bounded size, TinyLFU eviction and a time to live.
+// Loads, invalidations and evictions of one cart are serialized by the cache's compute,
+// so an invalidation that arrives during a load waits for it and then drops the possibly stale result
+@Component
+public class CaffeineCartCache implements CartCache {
+
+    private final Cache<Long, CartResponse> cache;
+
+    @Autowired
+    public CaffeineCartCache(@Value("${cart.cache.maximum-size:10000}") long maximumSize,
+                             @Value("${cart.cache.time-to-live:PT5M}") Duration timeToLive) {
+        this(maximumSize, timeToLive, Ticker.systemTicker(), Runnable::run);
+    }
+
+    CaffeineCartCache(long maximumSize, Duration timeToLive, Ticker ticker, Executor executor) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .ticker(ticker)
+                .executor(executor)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public CartResponse get(long cartId, LongFunction<CartResponse> loader) {
+        return cache.get(cartId, loader::apply);
+    }
+
+    @Override
+    public CartResponse getIfPresent(long cartId) {
+        return cache.getIfPresent(cartId);
+    }
+
+    @Override
+    public void invalidate(long cartId) {
+        cache.invalidate(cartId);
+    }
+
+    @Override
+    public CartCacheStats stats() {
+        CacheStats stats = cache.stats();
+        return new CartCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(), cache.estimatedSize());
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.cache;
+
+import org.example.response.CartResponse;
+
+import java.util.function.LongFunction;
+
+// Read-through cache of CartResponse snapshots keyed by cart id.
+// Callers have to invalidate a cart after every committed change to it
+public interface CartCache {
+
+    // Returns the cached snapshot or loads, caches and returns it. Exceptions from the loader are passed on and nothing is cached
+    CartResponse get(long cartId, LongFunction<CartResponse> loader);
+
+    // Returns the cached snapshot or null, never loads
+    CartResponse getIfPresent(long cartId);
+
+    void invalidate(long cartId);
+
+    CartCacheStats stats();
+}
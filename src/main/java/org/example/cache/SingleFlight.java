@@ -0,0 +1,80 @@
+package org.example.cache;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+// Concurrent loads of the same key share one execution: the first caller runs the loader, callers arriving
+// while it runs wait for it and get the same result or the same exception. Nothing is kept once the load is done,
+// the next call loads again. Writers forget the key after their commit, so a read starting after a change
+// never joins a load that may have read the rows from before it
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            return await(leader);
+        }
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    // The load runs on its own subscription, a caller that cancels doesn't cancel it for the others
+    public Mono<V> loadMono(K key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+            if (leader != null) {
+                return Mono.fromFuture(leader.copy());
+            }
+            flight.whenComplete((value, e) -> inFlight.remove(key, flight));
+            try {
+                loader.get().subscribe(flight::complete, flight::completeExceptionally, () -> flight.complete(null));
+            } catch (RuntimeException e) {
+                flight.completeExceptionally(e);
+            }
+            return Mono.fromFuture(flight.copy());
+        });
+    }
+
+    // Callers already waiting still get the running load's result, later ones start a new load
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> leader) {
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a load of the same key", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
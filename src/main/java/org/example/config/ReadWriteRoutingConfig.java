@@ -0,0 +1,71 @@
+package org.example.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+// Enabled by configuring at least one replica, cart.datasource.replicas[0].url, .username and .password.
+// spring.datasource stays the primary, the spring.datasource.hikari settings apply to every pool
+@Configuration
+@ConditionalOnProperty(name = "cart.datasource.replicas[0].url")
+public class ReadWriteRoutingConfig {
+
+    // Same pool as Spring Boot would create, Boot's data source auto-configuration backs off for the routing one
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    // Replica pools are closed with the routing data source and report the same pool metrics as the primary
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        List<HikariDataSource> replicas = new ArrayList<>();
+        List<DataSourceProperties> replicaProperties = binder.bind("cart.datasource.replicas", Bindable.listOf(DataSourceProperties.class)).get();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            HikariDataSource replica = replicaProperties.get(i).initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            binder.bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            replica.setPoolName(ReadWriteRoutingDataSource.replicaKey(i));
+            meterRegistry.ifAvailable(registry -> replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            replicas.add(replica);
+        }
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primaryDataSource, replicas);
+        routingDataSource.afterPropertiesSet();
+        return new ClosingLazyConnectionDataSourceProxy(routingDataSource, replicas);
+    }
+
+    // The primary is a bean of its own and closed by the context
+    private static class ClosingLazyConnectionDataSourceProxy extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+        private final List<HikariDataSource> replicas;
+
+        ClosingLazyConnectionDataSourceProxy(DataSource targetDataSource, List<HikariDataSource> replicas) {
+            super(targetDataSource);
+            this.replicas = replicas;
+        }
+
+        @Override
+        public void close() {
+            replicas.forEach(HikariDataSource::close);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Read-only transactions take their connection from the replicas, in turn, everything else from the primary.
+// Has to sit behind a LazyConnectionDataSourceProxy: the transaction manager asks for the connection
+// before the transaction is marked read-only, the proxy fetches it only for the first statement
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    // Set while reads of the current thread must see the latest committed state
+    private static final ThreadLocal<Boolean> primaryForced = ThreadLocal.withInitial(() -> false);
+
+    private final int numberOfReplicas;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<? extends DataSource> replicas) {
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targetDataSources.put(replicaKey(i), replicas.get(i));
+        }
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+        this.numberOfReplicas = replicas.size();
+    }
+
+    // Runs the reads on the primary, for reads that follow a change or that something is written from.
+    // Does nothing for the connection of a transaction that is already running
+    public static <T> T onPrimary(Supplier<T> reads) {
+        if (primaryForced.get()) {
+            return reads.get();
+        }
+        primaryForced.set(true);
+        try {
+            return reads.get();
+        } finally {
+            primaryForced.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (numberOfReplicas == 0 || primaryForced.get() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        return replicaKey(Math.floorMod(nextReplica.getAndIncrement(), numberOfReplicas));
+    }
+
+    static String replicaKey(int index) {
+        return "replica-" + index;
+    }
+}
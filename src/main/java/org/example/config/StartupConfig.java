@@ -0,0 +1,61 @@
+package org.example.config;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+// Startup settings used by the fast-startup profile, see application-fast-startup.properties
+@Configuration
+public class StartupConfig {
+
+    // Beans of the packages in cart.startup.lazy-packages are created on their first use instead of during startup.
+    // Meant for beans no request of the cart API needs, like the OpenAPI documentation and its UI.
+    // Static, so the post-processor is created before the beans of this class
+    @Bean
+    public static BeanFactoryPostProcessor lazyPackagesPostProcessor(Environment environment) {
+        String[] lazyPackages = environment.getProperty("cart.startup.lazy-packages", String[].class, new String[0]);
+        return beanFactory -> {
+            if (lazyPackages.length == 0) {
+                return;
+            }
+            for (String beanName : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+                // Beans from @Bean methods have no class name of their own, they belong to their configuration class
+                String className = beanDefinition.getBeanClassName();
+                if (className == null && beanDefinition.getFactoryBeanName() != null
+                        && beanFactory.containsBeanDefinition(beanDefinition.getFactoryBeanName())) {
+                    className = beanFactory.getBeanDefinition(beanDefinition.getFactoryBeanName()).getBeanClassName();
+                }
+                if (className != null && inPackage(className, lazyPackages)) {
+                    beanDefinition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    // Training run for the class data sharing archive: the JVM loads every class startup needs and exits,
+    // -XX:ArchiveClassesAtExit then writes them to the archive.
+    // Checked at runtime rather than with a condition, AOT processing would fix a condition at build time
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> exitAfterReadyListener() {
+        return event -> {
+            if (event.getApplicationContext().getEnvironment().getProperty("cart.startup.exit-after-ready", Boolean.class, false)) {
+                System.exit(SpringApplication.exit(event.getApplicationContext()));
+            }
+        };
+    }
+
+    private static boolean inPackage(String className, String[] packages) {
+        for (String packageName : packages) {
+            if (className.startsWith(packageName + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
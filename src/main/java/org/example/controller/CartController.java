@@ -1,14 +1,29 @@
 package org.example.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.example.entity.Cart;
+import org.example.request.BulkCartRequest;
 import org.example.request.CreateCartRequest;
 import org.example.request.UpdateCartRequest;
+import org.example.response.BulkCartResponse;
+import org.example.response.CartOperationResponse;
+import org.example.response.CartPageResponse;
 import org.example.response.CartResponse;
+import org.example.response.CartSummaryPageResponse;
+import org.example.response.CartVersion;
+import org.example.service.CartOperationException;
 import org.example.service.CartService;
+import org.example.service.IdempotencyStore;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,9 +31,18 @@ import java.util.List;
 @RequestMapping("/api/cart/")
 public class CartController {
 
+    public static final String NDJSON = "application/x-ndjson";
+
     @Autowired
     CartService cartService;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    IdempotencyStore idempotencyStore;
+
+    // Loads every cart into memory, use getCarts or streamAllCarts for large tables
     @GetMapping("getAllCarts")
     public List<CartResponse> getAllCarts() {
         List<Cart> cartList = cartService.getAllCarts();
@@ -29,24 +53,73 @@ public class CartController {
         return cartResponseList;
     }
 
+    @GetMapping("getCarts")
+    public CartPageResponse getCarts(@RequestParam(defaultValue = "0") long afterId,
+                                     @RequestParam(defaultValue = "50") int size) {
+        List<CartResponse> cartResponseList = new ArrayList<CartResponse>();
+        cartService.getCartsAfter(afterId, size).forEach(cart -> cartResponseList.add(new CartResponse(cart)));
+        return new CartPageResponse(cartResponseList, size);
+    }
+
+    // Id, total price and line count only, for list views that don't show the products
+    @GetMapping("getCartSummaries")
+    public CartSummaryPageResponse getCartSummaries(@RequestParam(defaultValue = "0") long afterId,
+                                                    @RequestParam(defaultValue = "50") int size,
+                                                    @RequestParam(defaultValue = "0") long minTotalPrice,
+                                                    @RequestParam(defaultValue = "" + Long.MAX_VALUE) long maxTotalPrice) {
+        return new CartSummaryPageResponse(cartService.getCartSummariesAfter(afterId, minTotalPrice, maxTotalPrice, size), size);
+    }
+
+    // Weak, the same version is served gzipped or not. Clicks that are not written yet follow the version
+    static String cartETag(CartVersion cartVersion) {
+        if (cartVersion.pendingChanges() == 0) {
+            return "W/\"" + cartVersion.version() + "\"";
+        }
+        return "W/\"" + cartVersion.version() + "." + cartVersion.pendingChanges() + "\"";
+    }
+
+    // One CartResponse per line, written chunk by chunk as the carts are read
+    @GetMapping(value = "streamAllCarts", produces = NDJSON)
+    public StreamingResponseBody streamAllCarts() {
+        return outputStream -> cartService.streamAllCarts(cart -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(new CartResponse(cart)));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // The cart's version is its ETag. A matching If-None-Match is answered with 304 after looking up
+    // the version only, the products are neither loaded nor serialized. Without the header the cart is
+    // loaded straight away and the ETag taken from it
     @GetMapping("getSingleCartById/{cart_id}")
-    public CartResponse getSingleCartById(@PathVariable long cart_id) {
-        Cart cart = cartService.getSingleCartById(cart_id);
-        return new CartResponse(cart);
+    public ResponseEntity<CartResponse> getSingleCartById(@PathVariable long cart_id, WebRequest webRequest) {
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(cartETag(cartService.getCartVersion(cart_id)))) {
+            return null;
+        }
+        CartResponse cartResponse = cartService.getCartResponseById(cart_id);
+        return ResponseEntity.ok().eTag(cartETag(new CartVersion(cartResponse.getVersion(), cartResponse.getPendingChanges())))
+                .body(cartResponse);
     }
 
+    // A retry with the same Idempotency-Key gets the first answer, the cart is created once
     @PostMapping("createCart")
-    public CartResponse createCart(@Valid @RequestBody CreateCartRequest createCartRequest) {
-        Cart cart = cartService.createCart(createCartRequest);
-        return new CartResponse(cart);
+    public CartResponse createCart(@Valid @RequestBody CreateCartRequest createCartRequest,
+                                   @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute("createCart", idempotencyKey, createCartRequest,
+                () -> new CartResponse(cartService.createCart(createCartRequest)));
     }
 
     // Has to be updated, will check if product is available and take it from new service (products)
     // It will take product_id as argument and will be renamed to createProduct
     @PutMapping("addProduct")
-    public CartResponse addProduct (@Valid @RequestBody UpdateCartRequest updateCartRequest) {
-        Cart cart = cartService.addProduct(updateCartRequest);
-        return new CartResponse(cart);
+    public CartResponse addProduct (@Valid @RequestBody UpdateCartRequest updateCartRequest,
+                                    @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute("addProduct", idempotencyKey, updateCartRequest,
+                () -> new CartResponse(cartService.addProduct(updateCartRequest)));
     }
 
     // Logic will be changed, it will take in path cart_id/product_id
@@ -63,9 +136,7 @@ public class CartController {
 
     @DeleteMapping("clearCart/{id}")
     public String clearCart(@PathVariable long id) {
-        String returnMessage = cartService.clearCart(id) + " products have been removed";
-        cartService.setTotalPriceToZero(id);
-        return returnMessage;
+        return cartService.clearCart(id) + " products have been removed";
     }
 
     @DeleteMapping("removeByIdProductFromCart/{product_id}")
@@ -77,4 +148,17 @@ public class CartController {
     public String removeSingleProductFromCart(@PathVariable long product_id) {
         return cartService.deleteSingleProductFromCart(product_id);
     }
+
+    // Many addProduct, addSingleProduct and remove calls on one or more carts in one transaction
+    @PostMapping("applyOperations")
+    public BulkCartResponse applyOperations(@Valid @RequestBody BulkCartRequest bulkCartRequest) {
+        return cartService.applyOperations(bulkCartRequest.getOperations());
+    }
+
+    // The whole batch has been rolled back, the answer names the operation that failed
+    @ExceptionHandler(CartOperationException.class)
+    public ResponseEntity<CartOperationResponse> cartOperationFailed(CartOperationException exception) {
+        return ResponseEntity.badRequest()
+                .body(new CartOperationResponse(exception.getIndex(), exception.getType(), exception.getMessage()));
+    }
 }
@@ -0,0 +1,31 @@
+package org.example.controller;
+
+import jakarta.validation.Valid;
+import org.example.request.CreateCatalogItemRequest;
+import org.example.response.CatalogItemResponse;
+import org.example.service.InventoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/catalog/")
+public class CatalogController {
+
+    @Autowired
+    InventoryService inventoryService;
+
+    @PostMapping("createItem")
+    public CatalogItemResponse createItem(@Valid @RequestBody CreateCatalogItemRequest createCatalogItemRequest) {
+        return inventoryService.createItem(createCatalogItemRequest);
+    }
+
+    @GetMapping("getItemById/{catalog_item_id}")
+    public CatalogItemResponse getItemById(@PathVariable long catalog_item_id) {
+        return inventoryService.getItem(catalog_item_id);
+    }
+
+    @PutMapping("restock/{catalog_item_id}")
+    public String restock(@PathVariable long catalog_item_id, @RequestParam int quantity) {
+        return inventoryService.restock(catalog_item_id, quantity);
+    }
+}
@@ -4,10 +4,12 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 import org.example.request.CreateCartRequest;
 import org.example.request.CreateProductRequest;
 import org.example.response.ProductResponse;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,18 +20,38 @@ import java.util.List;
 @Table(name = "cart")
 public class Cart {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence instead of IDENTITY so inserts can be JDBC batched,
+    // ids are handed out in blocks of 50 per round-trip
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+    @SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = 50)
     @Column(name = "cart_id")
     private long id;
 
-    @OneToMany(mappedBy = "cart", fetch = FetchType.EAGER)
+    // Loaded on demand, repository methods that need the products fetch them with an entity graph
+    @OneToMany(mappedBy = "cart", fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     private List<Product> addedProducts;
 
+    // In minor units (cents)
     @Column(name = "total_price")
-    private Double totalPrice;
+    private long totalPrice;
+
+    // Bumped by every write, including the native updates in the repositories
+    @Version
+    @Column(name = "version")
+    private long version;
+
+    // Set on creation and with every change of the total, the native updates in the repositories bind it themselves.
+    // Not a generated timestamp, that would turn a flush with only a replaced product list into an extra update.
+    // Carts left unchanged for longer than cart.purge.ttl are deleted by AbandonedCartPurger
+    @Column(name = "last_modified", nullable = false)
+    private Instant lastModified;
 
     public Cart (CreateCartRequest createCartRequest) {
-        this.totalPrice = createCartRequest.getTotalPrice();
+        this.lastModified = Instant.now();
+        if (createCartRequest.getTotalPrice() != null) {
+            this.totalPrice = createCartRequest.getTotalPrice();
+        }
         addedProducts = new ArrayList<Product>();
         if(createCartRequest.getAddedProducts() != null) {
             for (CreateProductRequest createProductRequest : createCartRequest.getAddedProducts()) {
@@ -37,4 +59,9 @@ public class Cart {
             }
         }
     }
+
+    public void setTotalPrice(long totalPrice) {
+        this.totalPrice = totalPrice;
+        this.lastModified = Instant.now();
+    }
 }
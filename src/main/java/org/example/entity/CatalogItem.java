@@ -0,0 +1,40 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.example.request.CreateCatalogItemRequest;
+
+// What can be sold. A Product is a line of a cart, lines added from the catalog point back to their item
+// and copy its name and price at the time they were added. Stock is not a column here, it is the sum of
+// the item's StockLedgerEntry rows, so reservations never queue up behind one row lock
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "catalog_item")
+public class CatalogItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "catalog_item_seq")
+    @SequenceGenerator(name = "catalog_item_seq", sequenceName = "catalog_item_seq", allocationSize = 50)
+    @Column(name = "catalog_item_id")
+    private long id;
+
+    @Column(name = "sku", nullable = false, unique = true, length = 64)
+    private String sku;
+
+    @Column(name = "item_name")
+    private String itemName;
+
+    // In minor units (cents)
+    @Column(name = "item_price")
+    private long itemPrice;
+
+    public CatalogItem(CreateCatalogItemRequest createCatalogItemRequest) {
+        this.sku = createCatalogItemRequest.getSku();
+        this.itemName = createCatalogItemRequest.getItemName();
+        this.itemPrice = createCatalogItemRequest.getItemPrice();
+    }
+}
@@ -16,26 +16,40 @@ import java.util.Objects;
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence instead of IDENTITY so inserts can be JDBC batched,
+    // ids are handed out in blocks of 50 per round-trip
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     @Column(name = "product_id")
     private long id;
 
     @Column(name = "product_name")
     private String productName;
 
+    // In minor units (cents)
     @Column(name = "product_price")
-    private Double productPrice;
+    private long productPrice;
 
     @Column(name = "product_quantity")
-    private Double productQuantity;
+    private int productQuantity;
+
+    // Bumped by every write, including the native updates in the repositories
+    @Version
+    @Column(name = "version")
+    private long version;
 
     @ManyToOne
     @JoinColumn(name = "cart_id")
     private Cart cart;
 
+    // Catalog item the line was added from, its units are reserved in the stock ledger. Null for free-form lines
+    @Column(name = "catalog_item_id")
+    private Long catalogItemId;
+
     public Product(CreateProductRequest createProductRequest) {
         this.productName = createProductRequest.getProductName();
         this.productPrice = createProductRequest.getProductPrice();
         this.productQuantity = createProductRequest.getProductQuantity();
+        this.catalogItemId = createProductRequest.getCatalogItemId();
     }
 }
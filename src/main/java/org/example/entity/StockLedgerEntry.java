@@ -0,0 +1,56 @@
+package org.example.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// Append-only record of every stock movement of a catalog item, the available stock is the sum of the deltas.
+// Entries are only ever inserted, with pooled ids so the inserts of one transaction go out as one JDBC batch
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "stock_ledger")
+public class StockLedgerEntry {
+
+    public enum Reason {
+        RESTOCK,
+        RESERVE,
+        RELEASE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_ledger_seq")
+    @SequenceGenerator(name = "stock_ledger_seq", sequenceName = "stock_ledger_seq", allocationSize = 50)
+    @Column(name = "stock_ledger_id")
+    private long id;
+
+    @Column(name = "catalog_item_id", nullable = false)
+    private long catalogItemId;
+
+    // Positive for restocks and released units, negative for reserved ones
+    @Column(name = "delta", nullable = false)
+    private int delta;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "reason", nullable = false, length = 16)
+    private Reason reason;
+
+    // Cart line the units were reserved for or released from, null for restocks
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public StockLedgerEntry(long catalogItemId, int delta, Reason reason, Long productId) {
+        this.catalogItemId = catalogItemId;
+        this.delta = delta;
+        this.reason = reason;
+        this.productId = productId;
+        this.createdAt = Instant.now();
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.cache.CartCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CartCacheMetrics implements MeterBinder {
+
+    @Autowired
+    CartCache cartCache;
+
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("cart.cache.requests", cartCache, cache -> cache.stats().getHitCount())
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cart.cache.requests", cartCache, cache -> cache.stats().getMissCount())
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cart.cache.evictions", cartCache, cache -> cache.stats().getEvictionCount())
+                .register(meterRegistry);
+        Gauge.builder("cart.cache.size", cartCache, cache -> cache.stats().getSize())
+                .register(meterRegistry);
+    }
+}
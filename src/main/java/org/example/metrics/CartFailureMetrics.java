@@ -0,0 +1,31 @@
+package org.example.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterThrowing;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+// Counts the IllegalArgumentException failure paths of CartService as cart.failures,
+// tagged by operation and by message ("No cart with given ID exists", "Product does not exist", ...).
+// Runs right after ExposeInvocationInterceptor and ahead of the quantity buffer, so failures of clicks
+// answered by the buffer are counted too
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class CartFailureMetrics {
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @AfterThrowing(pointcut = "execution(public * org.example.service.CartService.*(..))", throwing = "exception")
+    public void countFailure(JoinPoint joinPoint, IllegalArgumentException exception) {
+        String reason = exception.getMessage() != null ? exception.getMessage() : "unknown";
+        meterRegistry.counter("cart.failures",
+                "operation", joinPoint.getSignature().getName(),
+                "reason", reason).increment();
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    // Endpoint timers, repository method timers and Hikari pool gauges come from Spring Boot actuator,
+    // this adds the SQL statement counts on top
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementMetricsCustomizer(MeterRegistry meterRegistry) {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR,
+                new SqlStatementMetrics(meterRegistry, configuredInspector(hibernateProperties.get(AvailableSettings.STATEMENT_INSPECTOR))));
+    }
+
+    // hibernate.session_factory.statement_inspector may hold an instance, a class or a class name
+    private static StatementInspector configuredInspector(Object inspector) {
+        if (inspector == null || inspector instanceof StatementInspector) {
+            return (StatementInspector) inspector;
+        }
+        try {
+            Class<?> inspectorClass = inspector instanceof Class<?> ? (Class<?>) inspector : Class.forName(inspector.toString());
+            return (StatementInspector) inspectorClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create statement inspector " + inspector, e);
+        }
+    }
+}
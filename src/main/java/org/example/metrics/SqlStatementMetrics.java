@@ -0,0 +1,53 @@
+package org.example.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Locale;
+
+// Counts every statement Hibernate prepares as cart.sql.statements, tagged by statement type.
+// Passes the SQL on to the inspector that was configured before, if there was one
+public class SqlStatementMetrics implements StatementInspector {
+
+    private final Counter selects;
+    private final Counter inserts;
+    private final Counter updates;
+    private final Counter deletes;
+    private final Counter others;
+
+    private final StatementInspector delegate;
+
+    public SqlStatementMetrics(MeterRegistry meterRegistry, StatementInspector delegate) {
+        this.selects = counter(meterRegistry, "select");
+        this.inserts = counter(meterRegistry, "insert");
+        this.updates = counter(meterRegistry, "update");
+        this.deletes = counter(meterRegistry, "delete");
+        this.others = counter(meterRegistry, "other");
+        this.delegate = delegate;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String type) {
+        return Counter.builder("cart.sql.statements")
+                .description("SQL statements prepared by Hibernate")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        String statement = sql.stripLeading().toLowerCase(Locale.ROOT);
+        if (statement.startsWith("select")) {
+            selects.increment();
+        } else if (statement.startsWith("insert")) {
+            inserts.increment();
+        } else if (statement.startsWith("update")) {
+            updates.increment();
+        } else if (statement.startsWith("delete")) {
+            deletes.increment();
+        } else {
+            others.increment();
+        }
+        return delegate != null ? delegate.inspect(sql) : sql;
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Time from the JVM start until the application is ready and until the first request is answered.
+// Spring Boot's application.ready.time starts with SpringApplication.run, these include JVM startup and class loading,
+// which is what class data sharing and AOT processing shorten
+@Component
+public class StartupMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupMetrics.class);
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private final AtomicBoolean firstRequestHandled = new AtomicBoolean();
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        TimeGauge.builder("cart.startup.ready.time", () -> uptime, TimeUnit.MILLISECONDS)
+                .register(meterRegistry);
+        log.info("Ready {} ms after JVM start", uptime);
+    }
+
+    @EventListener
+    public void onRequestHandled(ServletRequestHandledEvent event) {
+        if (firstRequestHandled.compareAndSet(false, true)) {
+            long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+            TimeGauge.builder("cart.startup.first-request.time", () -> uptime, TimeUnit.MILLISECONDS)
+                    .register(meterRegistry);
+            log.info("First request {} answered {} ms after JVM start", event.getRequestUrl(), uptime);
+        }
+    }
+}
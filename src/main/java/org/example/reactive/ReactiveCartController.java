@@ -0,0 +1,61 @@
+package org.example.reactive;
+
+import jakarta.validation.Valid;
+import org.example.request.CreateCartRequest;
+import org.example.request.UpdateCartRequest;
+import org.example.response.CartResponse;
+import org.example.service.IdempotencyStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+// Same paths and payloads as CartController
+@RestController
+@RequestMapping("/api/cart/")
+public class ReactiveCartController {
+
+    @Autowired
+    ReactiveCartService cartService;
+
+    @Autowired
+    IdempotencyStore idempotencyStore;
+
+    @GetMapping("getSingleCartById/{cart_id}")
+    public Mono<CartResponse> getSingleCartById(@PathVariable long cart_id) {
+        return cartService.getSingleCartById(cart_id);
+    }
+
+    @PostMapping("createCart")
+    public Mono<CartResponse> createCart(@Valid @RequestBody CreateCartRequest createCartRequest,
+                                         @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.executeMono("createCart", idempotencyKey, createCartRequest,
+                () -> cartService.createCart(createCartRequest));
+    }
+
+    @PutMapping("addProduct")
+    public Mono<CartResponse> addProduct(@Valid @RequestBody UpdateCartRequest updateCartRequest,
+                                         @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.executeMono("addProduct", idempotencyKey, updateCartRequest,
+                () -> cartService.addProduct(updateCartRequest));
+    }
+
+    @DeleteMapping("deleteCart/{id}")
+    public Mono<String> deleteCart(@PathVariable long id) {
+        return cartService.deleteCart(id);
+    }
+
+    @DeleteMapping("clearCart/{id}")
+    public Mono<String> clearCart(@PathVariable long id) {
+        return cartService.clearCart(id);
+    }
+
+    @DeleteMapping("removeByIdProductFromCart/{product_id}")
+    public Mono<String> removeProductFromCart(@PathVariable long product_id) {
+        return cartService.deleteProductFromCart(product_id);
+    }
+
+    @DeleteMapping("removeByIdSingleProductFromCart/{product_id}")
+    public Mono<String> removeSingleProductFromCart(@PathVariable long product_id) {
+        return cartService.deleteSingleProductFromCart(product_id);
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.reactive;
+
+import io.r2dbc.spi.Readable;
+import org.example.response.CartResponse;
+import org.example.response.ProductResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Same tables and the same single-statement updates as CartRepository and ProductRepository,
+// every write bumps the version column so the JPA side sees it as a concurrent change, and sets last_modified
+@Repository
+public class ReactiveCartRepository {
+
+    @Autowired
+    DatabaseClient databaseClient;
+
+    public Mono<CartResponse> findCartById(long id) {
+        return databaseClient.sql("SELECT cart_id, total_price FROM cart WHERE cart_id = :id")
+                .bind("id", id)
+                .map(row -> {
+                    CartResponse cartResponse = new CartResponse();
+                    cartResponse.setId(getLong(row, "cart_id"));
+                    cartResponse.setTotalPrice(getLong(row, "total_price"));
+                    return cartResponse;
+                })
+                .one();
+    }
+
+    public Flux<ProductResponse> findProductsByCartId(long cartId) {
+        return databaseClient.sql("SELECT product_id, product_name, product_price, product_quantity FROM product WHERE cart_id = :cartId ORDER BY product_id")
+                .bind("cartId", cartId)
+                .map(row -> {
+                    ProductResponse productResponse = new ProductResponse();
+                    productResponse.setId(getLong(row, "product_id"));
+                    productResponse.setProductName(row.get("product_name", String.class));
+                    productResponse.setProductPrice(getLong(row, "product_price"));
+                    productResponse.setProductQuantity((int) getLong(row, "product_quantity"));
+                    return productResponse;
+                })
+                .all();
+    }
+
+    // Locks the product row until the end of the transaction
+    public Mono<ProductLine> findProductForUpdate(long id) {
+        return databaseClient.sql("SELECT product_price, product_quantity, cart_id, catalog_item_id FROM product WHERE product_id = :id FOR UPDATE")
+                .bind("id", id)
+                .map(row -> new ProductLine(id, getLong(row, "product_price"), (int) getLong(row, "product_quantity"),
+                        getNullableLong(row, "cart_id"), getNullableLong(row, "catalog_item_id")))
+                .one();
+    }
+
+    // The line a product added to the cart is merged into, the oldest one when the table already has duplicates
+    public Mono<ProductLine> findLine(long cartId, String productName, long productPrice) {
+        return databaseClient.sql("SELECT product_id, product_quantity FROM product WHERE cart_id = :cartId AND product_name = :productName " +
+                        "AND product_price = :productPrice AND catalog_item_id IS NULL ORDER BY product_id LIMIT 1")
+                .bind("cartId", cartId)
+                .bind("productName", productName)
+                .bind("productPrice", productPrice)
+                .map(row -> new ProductLine(getLong(row, "product_id"), productPrice, (int) getLong(row, "product_quantity"), cartId, null))
+                .one();
+    }
+
+    public Mono<Long> countCatalogLines(long cartId) {
+        return databaseClient.sql("SELECT COUNT(*) AS catalog_lines FROM product WHERE cart_id = :cartId AND catalog_item_id IS NOT NULL")
+                .bind("cartId", cartId)
+                .map(row -> getLong(row, "catalog_lines"))
+                .one();
+    }
+
+    public Mono<Long> insertCart(long id, long totalPrice) {
+        return databaseClient.sql("INSERT INTO cart (cart_id, total_price, version, last_modified) VALUES (:id, :totalPrice, 0, :now)")
+                .bind("id", id)
+                .bind("totalPrice", totalPrice)
+                .bind("now", now())
+                .fetch().rowsUpdated();
+    }
+
+    public Mono<Long> insertProduct(long cartId, ProductResponse product) {
+        return databaseClient.sql("INSERT INTO product (product_id, product_name, product_price, product_quantity, version, cart_id) " +
+                        "VALUES (:id, :productName, :productPrice, :productQuantity, 0, :cartId)")
+                .bind("id", product.getId())
+                .bind("productName", product.getProductName())
+                .bind("productPrice", product.getProductPrice())
+                .bind("productQuantity", product.getProductQuantity())
+                .bind("cartId", cartId)
+                .fetch().rowsUpdated();
+    }
+
+    public Mono<Long> addToTotalPrice(long id, long amount) {
+        return databaseClient.sql("UPDATE cart SET total_price = total_price + :amount, version = version + 1, last_modified = :now WHERE cart_id = :id")
+                .bind("id", id)
+                .bind("amount", amount)
+                .bind("now", now())
+                .fetch().rowsUpdated();
+    }
+
+    public Mono<Long> setTotalPrice(long id, long totalPrice) {
+        return databaseClient.sql("UPDATE cart SET total_price = :totalPrice, version = version + 1, last_modified = :now WHERE cart_id = :id")
+                .bind("id", id)
+                .bind("totalPrice", totalPrice)
+                .bind("now", now())
+                .fetch().rowsUpdated();
+    }
+
+    public Mono<Long> addToQuantity(long productId, int delta) {
+        return databaseClient.sql("UPDATE product SET product_quantity = product_quantity + :delta, version = version + 1 WHERE product_id = :id")
+                .bind("id", productId)
+                .bind("delta", delta)
+                .fetch().rowsUpdated();
+    }
+
+    public Mono<Long> deleteProduct(long productId) {
+        return databaseClient.sql("DELETE FROM product WHERE product_id = :id")
+                .bind("id", productId)
+                .fetch().rowsUpdated();
+    }
+
+    public Mono<Long> deleteProductsByCartId(long cartId) {
+        return databaseClient.sql("DELETE FROM product WHERE cart_id = :cartId")
+                .bind("cartId", cartId)
+                .fetch().rowsUpdated();
+    }
+
+    public Mono<Long> deleteCart(long id) {
+        return databaseClient.sql("DELETE FROM cart WHERE cart_id = :id")
+                .bind("id", id)
+                .fetch().rowsUpdated();
+    }
+
+    // UTC wall time, the way Hibernate writes Cart.lastModified
+    private static LocalDateTime now() {
+        return LocalDateTime.now(ZoneOffset.UTC);
+    }
+
+    // Drivers differ in the Java type they return for BIGINT and INT columns
+    private static long getLong(Readable row, String column) {
+        return row.get(column, Number.class).longValue();
+    }
+
+    private static Long getNullableLong(Readable row, String column) {
+        return row.get(column, Number.class) == null ? null : getLong(row, column);
+    }
+
+    record ProductLine(long id, long productPrice, int productQuantity, Long cartId, Long catalogItemId) {
+    }
+}
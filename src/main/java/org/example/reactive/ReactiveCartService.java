@@ -0,0 +1,219 @@
+package org.example.reactive;
+
+import org.example.cache.SingleFlight;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateProductRequest;
+import org.example.request.UpdateCartRequest;
+import org.example.response.CartResponse;
+import org.example.response.ProductResponse;
+import org.example.service.CartService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Reactive counterpart of CartService, with the same messages and the same money rules.
+// Product removals lock the product row instead of the version check and retries of the JPA side.
+// Stock is reserved by InventoryService on the servlet side only, so catalog lines are refused here
+@Service
+public class ReactiveCartService {
+
+    @Autowired
+    ReactiveCartRepository cartRepository;
+
+    @Autowired
+    ReactiveIdGenerator idGenerator;
+
+    // Concurrent reads of one cart share its two selects and the resulting CartResponse
+    private final SingleFlight<Long, CartResponse> cartReads = new SingleFlight<>();
+
+    public Mono<CartResponse> getSingleCartById(long id) {
+        return cartReads.loadMono(id, () -> findCart(id)
+                .flatMap(cartResponse -> cartRepository.findProductsByCartId(id).collectList()
+                        .map(products -> {
+                            cartResponse.setAddedProducts(products);
+                            return cartResponse;
+                        })));
+    }
+
+    @Transactional
+    public Mono<CartResponse> createCart(CreateCartRequest createCartRequest) {
+        long totalPrice = CartService.totalPrice(createCartRequest.getAddedProducts());
+        return idGenerator.nextId("cart_seq")
+                .flatMap(cartId -> cartRepository.insertCart(cartId, totalPrice)
+                        .then(insertProducts(cartId, mergeLines(createCartRequest.getAddedProducts())))
+                        .map(products -> {
+                            CartResponse cartResponse = new CartResponse();
+                            cartResponse.setId(cartId);
+                            cartResponse.setTotalPrice(totalPrice);
+                            cartResponse.setAddedProducts(products);
+                            return cartResponse;
+                        }));
+    }
+
+    // Answers with the cart's new total and only the products that were added, like CartService.addProduct
+    @Transactional
+    public Mono<CartResponse> addProduct(UpdateCartRequest updateCartRequest) {
+        List<CreateProductRequest> addedProducts = updateCartRequest.getAddedProducts() == null ? List.of() : updateCartRequest.getAddedProducts();
+        for (CreateProductRequest addedProduct : addedProducts) {
+            if (addedProduct.getProductQuantity() <= 0) {
+                return Mono.error(new IllegalArgumentException("Product quantity must be bigger than zero"));
+            }
+        }
+        long addedPrice = CartService.totalPrice(addedProducts);
+        long cartId = updateCartRequest.getId();
+        return findCart(cartId)
+                .flatMap(cart -> addLines(cartId, mergeLines(addedProducts)))
+                .flatMap(products -> cartRepository.addToTotalPrice(cartId, addedPrice)
+                        .then(forgetReadsAfterCommit(cartId))
+                        .then(findCart(cartId))
+                        .map(cartResponse -> {
+                            cartResponse.setAddedProducts(products);
+                            return cartResponse;
+                        }));
+    }
+
+    @Transactional
+    public Mono<String> deleteCart(long id) {
+        return findCart(id)
+                .flatMap(cart -> checkNoCatalogLines(id))
+                .flatMap(cart -> cartRepository.deleteProductsByCartId(id))
+                .flatMap(numberOfDeletedProducts -> cartRepository.deleteCart(id)
+                        .then(forgetReadsAfterCommit(id))
+                        .thenReturn("Cart with " + numberOfDeletedProducts + " products has been deleted successfully"));
+    }
+
+    // Products and total are cleared in one transaction, a missing cart leaves the products untouched
+    @Transactional
+    public Mono<String> clearCart(long id) {
+        return checkNoCatalogLines(id)
+                .then(cartRepository.setTotalPrice(id, 0L))
+                .flatMap(updatedCarts -> updatedCarts == 0
+                        ? Mono.error(new IllegalArgumentException("No cart with given ID exists"))
+                        : cartRepository.deleteProductsByCartId(id))
+                .flatMap(numberOfDeletedProducts -> forgetReadsAfterCommit(id).thenReturn(numberOfDeletedProducts))
+                .map(numberOfDeletedProducts -> numberOfDeletedProducts + " products have been removed");
+    }
+
+    @Transactional
+    public Mono<String> deleteProductFromCart(long id) {
+        return findProductForUpdate(id).flatMap(this::removeProduct);
+    }
+
+    @Transactional
+    public Mono<String> deleteSingleProductFromCart(long id) {
+        return findProductForUpdate(id).flatMap(product -> {
+            if (product.productQuantity() <= 1) {
+                return removeProduct(product);
+            }
+            return cartRepository.addToQuantity(id, -1)
+                    .then(cartRepository.addToTotalPrice(product.cartId(), -product.productPrice()))
+                    .then(forgetReadsAfterCommit(product.cartId()))
+                    .thenReturn("Single product removed from cart successfully");
+        });
+    }
+
+    private Mono<String> removeProduct(ReactiveCartRepository.ProductLine product) {
+        return cartRepository.deleteProduct(product.id())
+                .then(cartRepository.addToTotalPrice(product.cartId(), -CartService.lineTotal(product.productPrice(), product.productQuantity())))
+                .then(forgetReadsAfterCommit(product.cartId()))
+                .thenReturn("Product removed from cart successfully");
+    }
+
+    // Products named twice in one request become one line, like LineItemIndex does on the servlet side
+    private static List<ProductResponse> mergeLines(List<CreateProductRequest> createProductRequests) {
+        if (createProductRequests == null) {
+            return List.of();
+        }
+        if (createProductRequests.stream().anyMatch(createProductRequest -> createProductRequest.getCatalogItemId() != null)) {
+            throw catalogLinesNotSupported();
+        }
+        Map<LineKey, ProductResponse> lines = new LinkedHashMap<>();
+        for (CreateProductRequest createProductRequest : createProductRequests) {
+            ProductResponse line = lines.computeIfAbsent(new LineKey(createProductRequest.getProductName(), createProductRequest.getProductPrice()), lineKey -> {
+                ProductResponse productResponse = new ProductResponse();
+                productResponse.setProductName(lineKey.productName());
+                productResponse.setProductPrice(lineKey.productPrice());
+                return productResponse;
+            });
+            line.setProductQuantity(Math.addExact(line.getProductQuantity(), createProductRequest.getProductQuantity()));
+        }
+        return new ArrayList<>(lines.values());
+    }
+
+    // Units of a line the cart already has are added to it in a single-statement update, the other lines are inserted.
+    // Answers with the lines that were created or added to and their new quantities
+    private Mono<List<ProductResponse>> addLines(long cartId, List<ProductResponse> lines) {
+        return Flux.fromIterable(lines)
+                .concatMap(line -> cartRepository.findLine(cartId, line.getProductName(), line.getProductPrice())
+                        .flatMap(existingLine -> cartRepository.addToQuantity(existingLine.id(), line.getProductQuantity())
+                                .then(Mono.fromCallable(() -> {
+                                    line.setId(existingLine.id());
+                                    line.setProductQuantity(Math.addExact(existingLine.productQuantity(), line.getProductQuantity()));
+                                    return line;
+                                })))
+                        .switchIfEmpty(Mono.defer(() -> insertProduct(cartId, line))))
+                .collectList();
+    }
+
+    // A new cart has no lines to add to
+    private Mono<List<ProductResponse>> insertProducts(long cartId, List<ProductResponse> lines) {
+        return Flux.fromIterable(lines)
+                .concatMap(line -> insertProduct(cartId, line))
+                .collectList();
+    }
+
+    private Mono<ProductResponse> insertProduct(long cartId, ProductResponse line) {
+        return idGenerator.nextId("product_seq").flatMap(productId -> {
+            line.setId(productId);
+            return cartRepository.insertProduct(cartId, line).thenReturn(line);
+        });
+    }
+
+    // A read that starts after the commit loads the cart again instead of joining one that started before it
+    private Mono<Void> forgetReadsAfterCommit(long cartId) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCommit() {
+                        return Mono.fromRunnable(() -> cartReads.forget(cartId));
+                    }
+                }))
+                .then()
+                .onErrorResume(NoTransactionException.class, e -> Mono.fromRunnable(() -> cartReads.forget(cartId)));
+    }
+
+    private Mono<CartResponse> findCart(long id) {
+        return cartRepository.findCartById(id)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("No cart with given ID exists")));
+    }
+
+    private Mono<ReactiveCartRepository.ProductLine> findProductForUpdate(long id) {
+        return cartRepository.findProductForUpdate(id)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Product does not exist")))
+                .flatMap(product -> product.cartId() == null
+                        ? Mono.error(new IllegalArgumentException("No cart with given ID exists"))
+                        : product.catalogItemId() != null ? Mono.error(catalogLinesNotSupported()) : Mono.just(product));
+    }
+
+    private Mono<Long> checkNoCatalogLines(long cartId) {
+        return cartRepository.countCatalogLines(cartId)
+                .flatMap(catalogLines -> catalogLines > 0 ? Mono.error(catalogLinesNotSupported()) : Mono.just(catalogLines));
+    }
+
+    private static IllegalArgumentException catalogLinesNotSupported() {
+        return new IllegalArgumentException("Catalog lines can only be changed through the servlet API");
+    }
+
+    private record LineKey(String productName, long productPrice) {
+    }
+}
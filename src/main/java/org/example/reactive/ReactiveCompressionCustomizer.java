@@ -0,0 +1,19 @@
+package org.example.reactive;
+
+import org.springframework.boot.web.reactive.server.ConfigurableReactiveWebServerFactory;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+// server.compression is meant for the servlet application. On Tomcat the gzip filter fails on the read-only
+// buffers WebFlux writes, so the reactive variant answers uncompressed and leaves compression to a proxy
+@Component
+public class ReactiveCompressionCustomizer implements WebServerFactoryCustomizer<ConfigurableReactiveWebServerFactory> {
+
+    @Override
+    public void customize(ConfigurableReactiveWebServerFactory factory) {
+        Compression compression = new Compression();
+        compression.setEnabled(false);
+        factory.setCompression(compression);
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.reactive;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hands out ids from the same pooled sequences as the JPA entities. Every sequence value v reserves
+// the ids v - 49 to v, exactly like Hibernate's pooled optimizer, so both applications can insert side by side
+@Component
+public class ReactiveIdGenerator {
+
+    // Same as the allocationSize of the entities' @SequenceGenerator
+    static final int ALLOCATION_SIZE = 50;
+
+    @Autowired
+    ConnectionFactory connectionFactory;
+
+    private final Map<String, IdBlock> blocks = new ConcurrentHashMap<>();
+
+    public Mono<Long> nextId(String sequenceName) {
+        IdBlock block = blocks.computeIfAbsent(sequenceName, name -> new IdBlock());
+        Long id = block.take();
+        if (id != null) {
+            return Mono.just(id);
+        }
+        return nextSequenceValue(sequenceName).map(block::start);
+    }
+
+    // On a connection of its own, so the sequence row is not locked until the caller's transaction ends
+    private Mono<Long> nextSequenceValue(String sequenceName) {
+        return Mono.usingWhen(connectionFactory.create(),
+                connection -> "MySQL".equals(connection.getMetadata().getDatabaseProductName())
+                        ? Flux.from(connection.createStatement("update " + sequenceName + " set next_val = last_insert_id(next_val + " + ALLOCATION_SIZE + ")").execute())
+                                .flatMap(result -> result.getRowsUpdated())
+                                .then(selectLong(connection, "select last_insert_id() - " + ALLOCATION_SIZE))
+                        : selectLong(connection, "select next value for " + sequenceName),
+                Connection::close);
+    }
+
+    private static Mono<Long> selectLong(Connection connection, String sql) {
+        return Flux.from(connection.createStatement(sql).execute())
+                .flatMap(result -> result.map((row, metadata) -> row.get(0, Number.class).longValue()))
+                .single();
+    }
+
+    private static class IdBlock {
+
+        private long next = 1;
+
+        private long last = 0;
+
+        synchronized Long take() {
+            return next <= last ? next++ : null;
+        }
+
+        // A block fetched concurrently with another one replaces it, the rest of the older block is skipped.
+        // A new sequence starts at 1, its first block is just that id
+        synchronized long start(long sequenceValue) {
+            last = sequenceValue;
+            next = Math.max(1, sequenceValue - ALLOCATION_SIZE + 1);
+            return next++;
+        }
+    }
+}
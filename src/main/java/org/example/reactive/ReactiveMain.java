@@ -0,0 +1,23 @@
+package org.example.reactive;
+
+import org.example.service.IdempotencyStore;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Import;
+
+// Non-blocking variant of the cart API on WebFlux and R2DBC, for deployments with many mostly idle connections.
+// It shares the request and response classes with the servlet application and works on the schema
+// that the servlet application migrates with Flyway. Of the servlet side's beans it only takes the idempotency store
+@SpringBootApplication(exclude = {DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class, FlywayAutoConfiguration.class})
+@Import(IdempotencyStore.class)
+public class ReactiveMain {
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveMain.class)
+                .web(WebApplicationType.REACTIVE)
+                .run(args);
+    }
+}
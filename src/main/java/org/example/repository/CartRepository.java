@@ -1,9 +1,78 @@
 package org.example.repository;
 
 import org.example.entity.Cart;
+import org.example.response.CartSummaryResponse;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Queries run in read-only transactions when called on their own, like the inherited CRUD reads,
+// so a read/write routing data source can send them to a replica. Inside a service transaction they join it
 @Repository
+@Transactional(readOnly = true)
 public interface CartRepository extends JpaRepository<Cart, Long> {
+
+    @EntityGraph(attributePaths = "addedProducts")
+    @Query("SELECT c FROM Cart c ORDER BY c.id")
+    List<Cart> findAllWithProducts();
+
+    @EntityGraph(attributePaths = "addedProducts")
+    Optional<Cart> findWithProductsById(long id);
+
+    // Primary key lookup of the version alone, the products are not touched
+    @Query("SELECT c.version FROM Cart c WHERE c.id = :id")
+    Optional<Long> findVersionById(@Param("id") long id);
+
+    // Keyset page: ids of carts greater than the cursor, smallest id first.
+    // Ids are paged separately so the products join does not break the limit
+    @Query("SELECT c.id FROM Cart c WHERE c.id > :id ORDER BY c.id")
+    List<Long> findIdsAfter(@Param("id") long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = "addedProducts")
+    List<Cart> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    // Keyset page of summaries in one query, the line count is aggregated in SQL and no entity is managed
+    @Query("SELECT new org.example.response.CartSummaryResponse(c.id, c.totalPrice, COUNT(p)) " +
+            "FROM Cart c LEFT JOIN c.addedProducts p " +
+            "WHERE c.id > :id AND c.totalPrice BETWEEN :minTotalPrice AND :maxTotalPrice " +
+            "GROUP BY c.id, c.totalPrice ORDER BY c.id")
+    List<CartSummaryResponse> findSummariesAfter(@Param("id") long id,
+                                                 @Param("minTotalPrice") long minTotalPrice,
+                                                 @Param("maxTotalPrice") long maxTotalPrice,
+                                                 Pageable pageable);
+
+    // The updates below change totals in a single statement on the database side,
+    // so concurrent edits of the same cart never overwrite each other. They bump the
+    // version too, so entity writes based on an older read fail optimistically,
+    // and set last_modified to the given time
+
+    @Modifying
+    @Transactional
+    @Query(value="UPDATE cart SET total_price = total_price + :amount, version = version + 1, last_modified = :now WHERE cart_id = :id",nativeQuery=true)
+    int addToTotalPrice(@Param("id") long id, @Param("amount") long amount, @Param("now") Instant now);
+
+    // Only while the cart is still at the given version, 0 if it has changed since it was read
+    @Modifying
+    @Transactional
+    @Query(value="UPDATE cart SET total_price = 0, version = version + 1, last_modified = :now WHERE cart_id = :id AND version = :version",nativeQuery=true)
+    int clearTotalPrice(@Param("id") long id, @Param("version") long version, @Param("now") Instant now);
+
+    // Oldest first, locked so that a cart changed in the meantime is read with its new last_modified and skipped
+    @Query(value="SELECT cart_id FROM cart WHERE last_modified < :cutoff ORDER BY last_modified LIMIT :limit FOR UPDATE",nativeQuery=true)
+    List<Long> lockIdsModifiedBefore(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    @Modifying
+    @Transactional
+    @Query(value="DELETE FROM cart WHERE cart_id IN (:ids)",nativeQuery=true)
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
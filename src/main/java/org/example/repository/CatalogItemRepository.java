@@ -0,0 +1,11 @@
+package org.example.repository;
+
+import org.example.entity.CatalogItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CatalogItemRepository extends JpaRepository<CatalogItem, Long> {
+
+    boolean existsBySku(String sku);
+}
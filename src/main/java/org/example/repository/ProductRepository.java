@@ -1,16 +1,50 @@
 package org.example.repository;
 
+import jakarta.persistence.LockModeType;
 import org.example.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
     @Modifying
     @Transactional
     @Query(value="DELETE FROM product WHERE cart_id = :cartId",nativeQuery=true)
     Integer deleteProductsByCartId(long cartId);
+
+    @Modifying
+    @Transactional
+    @Query(value="DELETE FROM product WHERE cart_id IN (:cartIds)",nativeQuery=true)
+    int deleteProductsByCartIdIn(@Param("cartIds") Collection<Long> cartIds);
+
+    @Modifying
+    @Transactional
+    @Query(value="UPDATE product SET product_quantity = product_quantity + :delta, version = version + 1 WHERE product_id = :id",nativeQuery=true)
+    int addToQuantity(@Param("id") long id, @Param("delta") int delta);
+
+    // Only decrements while more than one unit is left, the last unit is removed with the whole product
+    @Modifying
+    @Transactional
+    @Query(value="UPDATE product SET product_quantity = product_quantity - 1, version = version + 1 " +
+            "WHERE product_id = :id AND product_quantity > 1",nativeQuery=true)
+    int decrementQuantityAboveOne(@Param("id") long id);
+
+    // Locked, so a line can't change between reading what it reserved and deleting it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.cart.id IN :cartIds AND p.catalogItemId IS NOT NULL")
+    List<Product> findCatalogLinesByCartIdIn(@Param("cartIds") Collection<Long> cartIds);
+
+    @Query("SELECT p FROM Product p JOIN FETCH p.cart WHERE p.cart.id IN :cartIds")
+    List<Product> findByCartIdIn(@Param("cartIds") Collection<Long> cartIds);
+
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.cart WHERE p.id IN :ids")
+    List<Product> findWithCartByIdIn(@Param("ids") Collection<Long> ids);
+
 }
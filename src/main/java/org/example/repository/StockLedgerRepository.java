@@ -0,0 +1,15 @@
+package org.example.repository;
+
+import org.example.entity.StockLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockLedgerRepository extends JpaRepository<StockLedgerEntry, Long> {
+
+    // Read once per item, when its in-memory counter is created
+    @Query("SELECT COALESCE(SUM(e.delta), 0) FROM StockLedgerEntry e WHERE e.catalogItemId = :catalogItemId")
+    long sumDeltas(@Param("catalogItemId") long catalogItemId);
+}
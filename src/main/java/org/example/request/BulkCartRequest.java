@@ -0,0 +1,18 @@
+package org.example.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BulkCartRequest {
+
+    // Applied in this order
+    @NotNull(message = "operations are required")
+    @Valid
+    private List<CartOperationRequest> operations;
+}
@@ -0,0 +1,21 @@
+package org.example.request;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class CartOperationRequest {
+
+    @NotNull(message = "operation type is required")
+    private CartOperationType type;
+
+    private Long cartId;
+
+    private Long productId;
+
+    private List<CreateProductRequest> addedProducts;
+}
@@ -0,0 +1,13 @@
+package org.example.request;
+
+// The single cart endpoints that can be combined in one applyOperations call
+public enum CartOperationType {
+    // addProduct, needs cartId and addedProducts
+    ADD_PRODUCTS,
+    // addSingleProduct, needs productId
+    ADD_SINGLE_PRODUCT,
+    // removeByIdSingleProductFromCart, needs productId
+    REMOVE_SINGLE_PRODUCT,
+    // removeByIdProductFromCart, needs productId
+    REMOVE_PRODUCT
+}
@@ -11,6 +11,7 @@ import java.util.List;
 @Builder
 public class CreateCartRequest {
 
-    private Double totalPrice;
+    // In minor units (cents), optional, the service computes the total from the products
+    private Long totalPrice;
     private List<CreateProductRequest> addedProducts;
 }
@@ -0,0 +1,22 @@
+package org.example.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class CreateCatalogItemRequest {
+
+    @NotBlank(message = "SKU is required")
+    private String sku;
+
+    private String itemName;
+
+    // In minor units (cents)
+    private long itemPrice;
+
+    @PositiveOrZero(message = "initial stock must not be negative")
+    private int initialStock;
+}
@@ -9,7 +9,11 @@ public class CreateProductRequest {
 
     private String productName;
 
-    private Double productPrice;
+    // In minor units (cents)
+    private long productPrice;
 
-    private Double productQuantity;
+    private int productQuantity;
+
+    // Optional. A line from the catalog takes name and price from the item and reserves its stock
+    private Long catalogItemId;
 }
@@ -15,6 +15,7 @@ public class UpdateCartRequest {
     @NotNull(message = "cart ID is required") //validation but for numeric type
     private long id;
 
-    private Double totalPrice;
+    // In minor units (cents), optional, the service computes the total from the products
+    private Long totalPrice;
     private List<CreateProductRequest> addedProducts;
 }
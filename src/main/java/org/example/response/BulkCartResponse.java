@@ -0,0 +1,21 @@
+package org.example.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class BulkCartResponse {
+
+    // One result per operation, in request order
+    private List<CartOperationResponse> results;
+
+    // Every cart the operations changed, as it is after the batch, by id
+    private List<CartResponse> carts;
+}
@@ -0,0 +1,21 @@
+package org.example.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.example.request.CartOperationType;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class CartOperationResponse {
+
+    // Position of the operation in the request
+    private int index;
+
+    private CartOperationType type;
+
+    private String message;
+}
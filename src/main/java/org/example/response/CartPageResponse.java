@@ -0,0 +1,25 @@
+package org.example.response;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@NoArgsConstructor
+@Getter
+@Setter
+public class CartPageResponse {
+
+    private List<CartResponse> carts;
+
+    // id to pass as afterId for the next page, null when there are no more carts
+    private Long nextCursor;
+
+    public CartPageResponse(List<CartResponse> carts, int size) {
+        this.carts = carts;
+        if (carts.size() == size) {
+            this.nextCursor = carts.get(carts.size() - 1).getId();
+        }
+    }
+}
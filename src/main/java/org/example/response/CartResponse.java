@@ -1,5 +1,6 @@
 package org.example.response;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -18,11 +19,21 @@ public class CartResponse {
 
     private List<ProductResponse> addedProducts;
 
-    private Double totalPrice;
+    // In minor units (cents)
+    private long totalPrice;
+
+    // Version of the cart row the snapshot was read at, sent as the ETag instead of in the body
+    @JsonIgnore
+    private long version;
+
+    // Clicks added by QuantityChangeBuffer that are not written to the row yet, part of the ETag with the version
+    @JsonIgnore
+    private int pendingChanges;
 
     public CartResponse(Cart cart) {
         this.id = cart.getId();
         this.totalPrice = cart.getTotalPrice();
+        this.version = cart.getVersion();
         if(cart.getAddedProducts() != null) {
             addedProducts = new ArrayList<ProductResponse>();
             for (Product product : cart.getAddedProducts()) {
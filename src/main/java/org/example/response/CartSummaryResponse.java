@@ -0,0 +1,22 @@
+package org.example.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Built straight from the query by CartRepository.findSummariesAfter, no Cart or Product entity is loaded
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class CartSummaryResponse {
+
+    private long id;
+
+    // In minor units (cents)
+    private long totalPrice;
+
+    // Number of products (lines) in the cart, not the sum of their quantities
+    private long lineCount;
+}
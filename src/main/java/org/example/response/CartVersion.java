@@ -0,0 +1,10 @@
+package org.example.response;
+
+// What a read of a cart is tagged with: the version of its row plus the clicks QuantityChangeBuffer holds
+// for it and hasn't written yet. A click changes the tag without writing the row, a flush bumps the version
+public record CartVersion(long version, int pendingChanges) {
+
+    public CartVersion(long version) {
+        this(version, 0);
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.response;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.example.entity.CatalogItem;
+
+@NoArgsConstructor
+@Getter
+@Setter
+public class CatalogItemResponse {
+
+    private long id;
+
+    private String sku;
+
+    private String itemName;
+
+    // In minor units (cents)
+    private long itemPrice;
+
+    // Units not reserved by any cart
+    private long availableStock;
+
+    public CatalogItemResponse(CatalogItem catalogItem, long availableStock) {
+        this.id = catalogItem.getId();
+        this.sku = catalogItem.getSku();
+        this.itemName = catalogItem.getItemName();
+        this.itemPrice = catalogItem.getItemPrice();
+        this.availableStock = availableStock;
+    }
+}
@@ -16,15 +16,20 @@ public class ProductResponse {
 
     private String productName;
 
-    private Double productPrice;
+    // In minor units (cents)
+    private long productPrice;
 
-    private Double productQuantity;
+    private int productQuantity;
+
+    // Null for lines that don't come from the catalog
+    private Long catalogItemId;
 
     public ProductResponse (Product product) {
         this.id = product.getId();
         this.productName = product.getProductName();
         this.productPrice = product.getProductPrice();
         this.productQuantity = product.getProductQuantity();
+        this.catalogItemId = product.getCatalogItemId();
     }
 
     @Override
@@ -32,11 +37,13 @@ public class ProductResponse {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ProductResponse product = (ProductResponse) o;
-        return Objects.equals(productName, product.productName) && Objects.equals(productPrice, product.productPrice) && Objects.equals(productQuantity, product.productQuantity);
+        return productPrice == product.productPrice && productQuantity == product.productQuantity && Objects.equals(productName, product.productName);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(productName, productPrice, productQuantity);
+        int result = Objects.hashCode(productName);
+        result = 31 * result + Long.hashCode(productPrice);
+        return 31 * result + productQuantity;
     }
 }
@@ -0,0 +1,172 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.entity.Product;
+import org.example.repository.CartRepository;
+import org.example.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Deletes the carts that were not changed for cart.purge.ttl, with their products, oldest first.
+// Every chunk of at most cart.purge.chunk-size carts is a short transaction of its own and the purge pauses
+// for cart.purge.pause between chunks, so it never holds many locks for long and writes the binlog in small pieces.
+// Enabled with cart.purge.enabled=true, runs every cart.purge.interval
+@Component
+@ConditionalOnProperty(name = "cart.purge.enabled", havingValue = "true")
+public class AbandonedCartPurger {
+
+    private static final Logger log = LoggerFactory.getLogger(AbandonedCartPurger.class);
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    InventoryService inventoryService;
+
+    @Autowired
+    CartInvalidation cartInvalidation;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration ttl;
+
+    private final Duration interval;
+
+    private final int chunkSize;
+
+    private final Duration pause;
+
+    private Counter purgedCarts;
+
+    private Counter purgedProducts;
+
+    private ScheduledExecutorService purger;
+
+    @Autowired
+    public AbandonedCartPurger(PlatformTransactionManager transactionManager,
+                               @Value("${cart.purge.ttl:P30D}") Duration ttl,
+                               @Value("${cart.purge.interval:PT10M}") Duration interval,
+                               @Value("${cart.purge.chunk-size:500}") int chunkSize,
+                               @Value("${cart.purge.pause:PT0.2S}") Duration pause) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Purge chunk size must be bigger than zero");
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ttl = ttl;
+        this.interval = interval;
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+    }
+
+    @PostConstruct
+    void start() {
+        purgedCarts = Counter.builder("cart.purge.rows").tag("table", "cart").register(meterRegistry);
+        purgedProducts = Counter.builder("cart.purge.rows").tag("table", "product").register(meterRegistry);
+        purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(this::purgeQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // A running purge stops at its next pause, the carts it did not get to are left for the next start
+    @PreDestroy
+    void stop() throws InterruptedException {
+        purger.shutdownNow();
+        purger.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // Purges chunk after chunk until no expired cart is left
+    public PurgeResult purgeExpiredCarts() {
+        Instant cutoff = Instant.now().minus(ttl);
+        int carts = 0;
+        int products = 0;
+        int chunks = 0;
+        while (true) {
+            Chunk chunk = transactionTemplate.execute(status -> purgeChunk(cutoff));
+            if (chunk.cartIds().isEmpty()) {
+                break;
+            }
+            // The chunk is committed, reads of its carts no longer find them
+            chunk.cartIds().forEach(cartInvalidation::invalidateAfterCommit);
+            carts += chunk.cartIds().size();
+            products += chunk.products();
+            chunks++;
+            purgedCarts.increment(chunk.cartIds().size());
+            purgedProducts.increment(chunk.products());
+            if (chunk.cartIds().size() < chunkSize || !pause()) {
+                break;
+            }
+        }
+        PurgeResult purgeResult = new PurgeResult(carts, products, chunks);
+        if (carts > 0) {
+            log.info("Purged {} carts and {} products unchanged since {} in {} chunks", carts, products, cutoff, chunks);
+        }
+        return purgeResult;
+    }
+
+    // The carts are locked before their products are touched, a cart changed since the select no longer matches.
+    // Stock reserved by catalog lines is released like when the cart is deleted
+    private Chunk purgeChunk(Instant cutoff) {
+        List<Long> cartIds = cartRepository.lockIdsModifiedBefore(cutoff, chunkSize);
+        if (cartIds.isEmpty()) {
+            return new Chunk(cartIds, 0);
+        }
+        for (Product product : productRepository.findCatalogLinesByCartIdIn(cartIds)) {
+            inventoryService.release(product, product.getProductQuantity());
+        }
+        int products = productRepository.deleteProductsByCartIdIn(cartIds);
+        cartRepository.deleteByIdIn(cartIds);
+        return new Chunk(cartIds, products);
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Failed runs are logged, the next run starts over with whatever is still expired
+    private void purgeQuietly() {
+        try {
+            purgeExpiredCarts();
+        } catch (RuntimeException e) {
+            log.warn("Purging abandoned carts failed, retrying in {}", interval, e);
+        }
+    }
+
+    private record Chunk(List<Long> cartIds, int products) {
+    }
+
+    public record PurgeResult(int carts, int products, int chunks) {
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.service;
+
+import org.example.cache.CartCache;
+import org.example.cache.SingleFlight;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// What every writer of a cart does once its change is committed, CartService, QuantityChangeBuffer and
+// AbandonedCartPurger alike: the cart is read from the primary for a while, and its cached snapshot and
+// version lookups that started before the commit are dropped
+@Component
+public class CartInvalidation {
+
+    @Autowired
+    CartCache cartCache;
+
+    @Autowired
+    RecentCartWrites recentCartWrites;
+
+    // Concurrent version lookups of one uncached cart, e.g. a shared cart polled by many clients, share one select
+    private final SingleFlight<Long, Optional<Long>> versionReads = new SingleFlight<>();
+
+    Optional<Long> loadVersion(long cartId, Supplier<Optional<Long>> versionLoader) {
+        return versionReads.load(cartId, versionLoader);
+    }
+
+    // Recorded before the snapshot is dropped, so the load that follows already reads from the primary
+    public void invalidateAfterCommit(long cartId) {
+        runAfterCommit(() -> {
+            recentCartWrites.record(cartId);
+            versionReads.forget(cartId);
+            cartCache.invalidate(cartId);
+        });
+    }
+
+    // Nothing of a new cart is cached, it only has to be read from the primary for a while
+    public void recordAfterCommit(long cartId) {
+        runAfterCommit(() -> recentCartWrites.record(cartId));
+    }
+
+    // Cached snapshots are dropped once the change is visible to other transactions,
+    // a load that is still running at that point is waited for and dropped as well.
+    // Outside a transaction the change is already committed
+    private static void runAfterCommit(Runnable invalidation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        } else {
+            invalidation.run();
+        }
+    }
+}
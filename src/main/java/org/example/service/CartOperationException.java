@@ -0,0 +1,19 @@
+package org.example.service;
+
+import lombok.Getter;
+import org.example.request.CartOperationType;
+
+// Failure of one operation of an applyOperations batch, the message is the one the single endpoint would give
+@Getter
+public class CartOperationException extends IllegalArgumentException {
+
+    private final int index;
+
+    private final CartOperationType type;
+
+    public CartOperationException(int index, CartOperationType type, IllegalArgumentException cause) {
+        super(cause.getMessage(), cause);
+        this.index = index;
+        this.type = type;
+    }
+}
@@ -1,47 +1,135 @@
 package org.example.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.cache.CartCache;
+import org.example.config.ReadWriteRoutingDataSource;
 import org.example.entity.Cart;
 import org.example.entity.Product;
 import org.example.repository.CartRepository;
 import org.example.repository.ProductRepository;
+import org.example.request.CartOperationRequest;
+import org.example.request.CartOperationType;
 import org.example.request.CreateCartRequest;
 import org.example.request.CreateProductRequest;
 import org.example.request.UpdateCartRequest;
+import org.example.response.BulkCartResponse;
+import org.example.response.CartOperationResponse;
+import org.example.response.CartResponse;
+import org.example.response.CartSummaryResponse;
+import org.example.response.CartVersion;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class CartService {
 
+    public static final int MAX_PAGE_SIZE = 500;
+
+    public static final int MAX_BATCH_OPERATIONS = 100;
+
     @Autowired
     CartRepository cartRepository;
 
     @Autowired
     ProductRepository productRepository;
 
-    public List<Cart> getAllCarts() { return cartRepository.findAll();}
+    @Autowired
+    CartCache cartCache;
+
+    @Autowired
+    InventoryService inventoryService;
+
+    @Autowired
+    RecentCartWrites recentCartWrites;
+
+    @Autowired
+    CartInvalidation cartInvalidation;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    public List<Cart> getAllCarts() { return cartRepository.findAllWithProducts();}
+
+    public List<Cart> getCartsAfter(long afterId, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<Long> ids = cartRepository.findIdsAfter(afterId, PageRequest.of(0, size));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return cartRepository.findByIdInOrderByIdAsc(ids);
+    }
+
+    // Summaries of the carts after afterId whose total price is in [minTotalPrice, maxTotalPrice], smallest id first
+    public List<CartSummaryResponse> getCartSummariesAfter(long afterId, long minTotalPrice, long maxTotalPrice, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (minTotalPrice > maxTotalPrice) {
+            throw new IllegalArgumentException("Minimum total price must not be bigger than maximum total price");
+        }
+        return cartRepository.findSummariesAfter(afterId, minTotalPrice, maxTotalPrice, PageRequest.of(0, size));
+    }
+
+    // Hands every cart to the consumer in id order, reading keyset chunks of MAX_PAGE_SIZE carts.
+    // The persistence context is cleared after each chunk so memory stays flat no matter how many carts there are
+    @Transactional(readOnly = true)
+    public void streamAllCarts(Consumer<Cart> cartConsumer) {
+        long cursor = 0;
+        List<Cart> chunk;
+        do {
+            chunk = getCartsAfter(cursor, MAX_PAGE_SIZE);
+            for (Cart cart : chunk) {
+                cartConsumer.accept(cart);
+                cursor = cart.getId();
+            }
+            entityManager.clear();
+        } while (chunk.size() == MAX_PAGE_SIZE);
+    }
 
     public Cart getSingleCartById(long id) {
-        if (cartRepository.existsById(id)) {
-            Optional<Cart> optionalCart = cartRepository.findById(id);
-            Cart cart = new Cart();
-            cart.setTotalPrice(optionalCart.get().getTotalPrice());
-            cart.setId(optionalCart.get().getId());
-            cart.setAddedProducts(optionalCart.get().getAddedProducts());
-            return cart;
-        }
-        else {
-            throw new IllegalArgumentException("No cart with given ID exists");
+        return readCart(id, () -> cartRepository.findWithProductsById(id))
+                .orElseThrow(() -> new IllegalArgumentException("No cart with given ID exists"));
+    }
+
+    // Read-through: served from the cart cache, loaded with getSingleCartById on a miss.
+    // Concurrent misses of one cart share a single load, the cache runs it once and the others wait for it
+    public CartResponse getCartResponseById(long id) {
+        return cartCache.get(id, cartId -> new CartResponse(getSingleCartById(cartId)));
+    }
+
+    // Every change of a cart or its products bumps the cart's version. Answered from the cart cache when the
+    // cart is cached, otherwise with one primary key lookup shared by the concurrent callers
+    public CartVersion getCartVersion(long id) {
+        CartResponse cached = cartCache.getIfPresent(id);
+        if (cached != null) {
+            return new CartVersion(cached.getVersion());
         }
+        return new CartVersion(cartInvalidation.loadVersion(id, () -> readCart(id, () -> cartRepository.findVersionById(id)))
+                .orElseThrow(() -> new IllegalArgumentException("No cart with given ID exists")));
     }
 
+    @Transactional
     public Cart createCart (CreateCartRequest createCartRequest) {
+        inventoryService.fillFromCatalog(createCartRequest.getAddedProducts());
         Cart cart = new Cart(createCartRequest);
-        double totalPrice = 0d;
         List<Product> productList = new ArrayList<Product>();
         if (createCartRequest.getAddedProducts() != null) {
             for (CreateProductRequest createProductRequest :
@@ -50,141 +138,345 @@ public class CartService {
                 product.setProductName(createProductRequest.getProductName());
                 product.setProductPrice(createProductRequest.getProductPrice());
                 product.setProductQuantity(createProductRequest.getProductQuantity());
+                product.setCatalogItemId(createProductRequest.getCatalogItemId());
                 product.setCart(cart);
                 productList.add(product);
-                totalPrice += createProductRequest.getProductPrice() * createProductRequest.getProductQuantity();
             }
         }
-        cart.setTotalPrice(totalPrice);
+        cart.setTotalPrice(totalPrice(createCartRequest.getAddedProducts()));
         cartRepository.save(cart);
         productRepository.saveAll(productList);
+        reserveStock(productList);
         cart.setAddedProducts(productList);
+        cartInvalidation.recordAfterCommit(cart.getId());
         return cart;
     }
 
-    public Cart addProduct (UpdateCartRequest updateCartRequest) {
-        if (cartRepository.findById(updateCartRequest.getId()).isPresent()){
-            Cart cart = cartRepository.findById(updateCartRequest.getId()).get();
-            List<Product> productList = new ArrayList<Product>();
-            if (updateCartRequest.getAddedProducts() != null) {
-                for (CreateProductRequest addedProduct :
-                        updateCartRequest.getAddedProducts()) {
-                    if (addedProduct.getProductQuantity() <= 0) {
-                        throw new IllegalArgumentException("Product quantity must be bigger than zero");
-                    }
-                    Product product = new Product(addedProduct);
-                    product.setCart(cart);
-                    productList.add(product);
-                    cart.setTotalPrice(cart.getTotalPrice() + (addedProduct.getProductPrice() * addedProduct.getProductQuantity()));
-                }
-                productRepository.saveAll(productList);
+    // Money is kept in minor units, so totals are exact and an overflow fails instead of wrapping
+    public static long totalPrice(List<CreateProductRequest> createProductRequests) {
+        long totalPrice = 0L;
+        if (createProductRequests != null) {
+            for (CreateProductRequest createProductRequest : createProductRequests) {
+                totalPrice = Math.addExact(totalPrice, lineTotal(createProductRequest.getProductPrice(), createProductRequest.getProductQuantity()));
             }
-
-            cart.setAddedProducts(productList);
-            cart = cartRepository.save(cart);
-            return cart;
         }
-        else {
-            throw new IllegalArgumentException("No cart with given ID exists");
+        return totalPrice;
+    }
+
+    public static long lineTotal(long productPrice, int productQuantity) {
+        return Math.multiplyExact(productPrice, productQuantity);
+    }
+
+    // Each mutation below runs in one transaction. Quantities and totals are changed with
+    // single-statement updates on the database side instead of read-modify-write in Java,
+    // so concurrent clicks on the same cart never lose an update. Entity writes that depend
+    // on a previous read are version checked and retried on conflict
+    @RetryOnConflict
+    @Transactional
+    public Cart addProduct (UpdateCartRequest updateCartRequest) {
+        Cart cart = cartRepository.findWithProductsById(updateCartRequest.getId())
+                .orElseThrow(() -> new IllegalArgumentException("No cart with given ID exists"));
+        inventoryService.fillFromCatalog(updateCartRequest.getAddedProducts());
+        List<Product> productList = new ArrayList<Product>();
+        if (updateCartRequest.getAddedProducts() != null) {
+            productList = addLines(cart, new LineItemIndex(cart.getAddedProducts()), updateCartRequest.getAddedProducts());
+            cartRepository.addToTotalPrice(cart.getId(), totalPrice(updateCartRequest.getAddedProducts()), Instant.now());
+            entityManager.refresh(cart);
+            cartInvalidation.invalidateAfterCommit(cart.getId());
         }
+
+        cart.setAddedProducts(productList);
+        return cart;
     }
-    public String addSingleProduct (long id) {
-        String returnMessage;
-        if(productRepository.findById(id).isPresent()) {
-            Product product = productRepository.findById(id).get();
-            long cartId = product.getCart().getId();
-            if (cartRepository.findById(cartId).isPresent()) {
-                Double addedProductPrice = product.getProductPrice();
-                product.setProductQuantity(product.getProductQuantity() + 1);
-                productRepository.save(product);
-                Cart cart = cartRepository.findById(cartId).get();
-                cart.setTotalPrice(cart.getTotalPrice() + addedProductPrice);
-                cartRepository.save(cart);
-                returnMessage = "Single product added to cart successfully";
+
+    // Units of a line the cart already has, or of a line named twice, are added to that line with a version checked
+    // update, all changed lines go out in one JDBC batch. The other products are inserted in one batch.
+    // Returns the lines that were created or added to, in request order
+    private List<Product> addLines(Cart cart, LineItemIndex lineItemIndex, List<CreateProductRequest> addedProducts) {
+        Map<Product, Integer> addedUnits = new LinkedHashMap<>();
+        List<Product> newProducts = new ArrayList<>();
+        for (CreateProductRequest addedProduct : addedProducts) {
+            if (addedProduct.getProductQuantity() <= 0) {
+                throw new IllegalArgumentException("Product quantity must be bigger than zero");
             }
-            else {
-                throw new IllegalArgumentException("No cart with given ID exists");
+            Product product = lineItemIndex.find(addedProduct);
+            if (product == null) {
+                product = new Product(addedProduct);
+                product.setProductQuantity(0);
+                product.setCart(cart);
+                lineItemIndex.add(product);
+                newProducts.add(product);
             }
+            product.setProductQuantity(Math.addExact(product.getProductQuantity(), addedProduct.getProductQuantity()));
+            addedUnits.merge(product, addedProduct.getProductQuantity(), Math::addExact);
+        }
+        productRepository.saveAll(newProducts);
+        addedUnits.forEach(inventoryService::reserve);
+        return new ArrayList<>(addedUnits.keySet());
+    }
+
+    // The product is read for its cart and catalog item, the changes themselves are still single-statement updates
+    @Transactional
+    public String addSingleProduct (long id) {
+        Product product = findProduct(id);
+        if (product.getCart() == null) {
+            throw new IllegalArgumentException("No cart with given ID exists");
         }
-        else {
+        inventoryService.reserve(product, 1);
+        if (productRepository.addToQuantity(id, 1) == 0) {
             throw new IllegalArgumentException("Product does not exist");
         }
-        return returnMessage;
+        cartRepository.addToTotalPrice(product.getCart().getId(), product.getProductPrice(), Instant.now());
+        cartInvalidation.invalidateAfterCommit(product.getCart().getId());
+        return "Single product added to cart successfully";
     }
 
-
+    // The cart is read with its products, a product added or changed in the meantime bumps the cart's
+    // version so the delete fails and is retried instead of leaving stock reserved for a deleted line
+    @RetryOnConflict
+    @Transactional
     public String deleteCart(long id) {
-        if (cartRepository.findById(id).isPresent()) {
-            Integer numberOfDeletedProducts = clearCart(id);
-            cartRepository.deleteById(id);
-            return "Cart with " + numberOfDeletedProducts + " products has been deleted successfully";
-        } else {
-            throw new IllegalArgumentException("No cart with given ID exists");
-        }
+        Cart cart = cartRepository.findWithProductsById(id)
+                .orElseThrow(() -> new IllegalArgumentException("No cart with given ID exists"));
+        Integer numberOfDeletedProducts = deleteProducts(id, cart.getAddedProducts());
+        cartRepository.delete(cart);
+        cartInvalidation.invalidateAfterCommit(id);
+        return "Cart with " + numberOfDeletedProducts + " products has been deleted successfully";
     }
 
+    // Lines and total are cleared in one transaction. The total is zeroed at the version the cart was read with,
+    // a line added or changed in the meantime bumps it so the clear is retried instead of zeroing a total that
+    // still counts that line
+    @RetryOnConflict
+    @Transactional
     public Integer clearCart(long cart_id) {
-        return productRepository.deleteProductsByCartId(cart_id);
+        Cart cart = cartRepository.findWithProductsById(cart_id)
+                .orElseThrow(() -> new IllegalArgumentException("No cart with given ID exists"));
+        Integer numberOfDeletedProducts = deleteProducts(cart_id, cart.getAddedProducts());
+        if (cartRepository.clearTotalPrice(cart_id, cart.getVersion(), Instant.now()) == 0) {
+            throw new ObjectOptimisticLockingFailureException(Cart.class, cart_id);
+        }
+        return numberOfDeletedProducts;
     }
 
-    public void setTotalPriceToZero(long id) {
-        if (cartRepository.findById(id).isPresent()) {
-            Cart cart = cartRepository.findById(id).get();
-            cart.setTotalPrice(0.00d);
-            cartRepository.save(cart);
+    // Gives back the stock of the catalog lines among the given products, then deletes every product of the cart
+    private Integer deleteProducts(long cartId, List<Product> products) {
+        for (Product product : products) {
+            inventoryService.release(product, product.getProductQuantity());
         }
-        else{
+        Integer numberOfDeletedProducts = productRepository.deleteProductsByCartId(cartId);
+        cartInvalidation.invalidateAfterCommit(cartId);
+        return numberOfDeletedProducts;
+    }
+
+    @RetryOnConflict
+    @Transactional
+    public String deleteProductFromCart(long id) {
+        return removeProduct(findProduct(id));
+    }
+
+    // The decrement only applies above one unit, if a concurrent click got there first it is retried
+    @RetryOnConflict
+    @Transactional
+    public String deleteSingleProductFromCart(long id) {
+        Product product = findProduct(id);
+        if (product.getProductQuantity() <= 1) {
+            return removeProduct(product);
+        }
+        if (product.getCart() == null) {
             throw new IllegalArgumentException("No cart with given ID exists");
         }
+        if (productRepository.decrementQuantityAboveOne(id) == 0) {
+            throw new ObjectOptimisticLockingFailureException(Product.class, id);
+        }
+        cartRepository.addToTotalPrice(product.getCart().getId(), -product.getProductPrice(), Instant.now());
+        inventoryService.release(product, 1);
+        cartInvalidation.invalidateAfterCommit(product.getCart().getId());
+        return "Single product removed from cart successfully";
     }
 
-    public String deleteProductFromCart(long id) {
-        if (productRepository.findById(id).isPresent()){
-            Product product = productRepository.findById(id).get();
-            long cartId = product.getCart().getId();
-            if (cartRepository.findById(cartId).isPresent()) {
-                productRepository.deleteById(id);
-                Double removedProductPrice = product.getProductPrice() * product.getProductQuantity();
-                Cart cart = cartRepository.findById(cartId).get();
-                cart.setTotalPrice(cart.getTotalPrice() - removedProductPrice);
-                cartRepository.save(cart);
-                return "Product removed from cart successfully";
+    // Applies the operations in request order in one transaction, all of them or none. Every product and
+    // cart involved is read once up front, changed in memory and written back in JDBC batches on flush.
+    // Versions are checked on write, so a concurrent change rolls back the batch and it is retried
+    @RetryOnConflict
+    @Transactional
+    public BulkCartResponse applyOperations(List<CartOperationRequest> operations) {
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new IllegalArgumentException("A batch can have at most " + MAX_BATCH_OPERATIONS + " operations");
+        }
+        Map<Long, Product> products = new HashMap<>();
+        Map<Long, Cart> carts = new HashMap<>();
+        Map<Long, LineItemIndex> lineItemIndexes = new HashMap<>();
+        loadOperationTargets(operations, products, carts, lineItemIndexes);
+        List<CreateProductRequest> allAddedProducts = new ArrayList<>();
+        for (CartOperationRequest operation : operations) {
+            if (operation.getType() == CartOperationType.ADD_PRODUCTS && operation.getAddedProducts() != null) {
+                allAddedProducts.addAll(operation.getAddedProducts());
             }
-            else {
-                throw new IllegalArgumentException("No cart with given ID exists");
+        }
+        inventoryService.fillFromCatalog(allAddedProducts);
+
+        List<CartOperationResponse> results = new ArrayList<>();
+        Map<Long, Cart> changedCarts = new TreeMap<>();
+        for (int index = 0; index < operations.size(); index++) {
+            CartOperationRequest operation = operations.get(index);
+            try {
+                results.add(new CartOperationResponse(index, operation.getType(), applyOperation(operation, products, carts, lineItemIndexes, changedCarts)));
+            } catch (IllegalArgumentException e) {
+                throw new CartOperationException(index, operation.getType(), e);
             }
         }
-        else {
-            throw new IllegalArgumentException("Product does not exist");
+
+        // Written before the changed carts are read back with their products for the answer
+        productRepository.flush();
+        List<CartResponse> cartResponses = new ArrayList<>();
+        if (!changedCarts.isEmpty()) {
+            for (Cart cart : cartRepository.findByIdInOrderByIdAsc(changedCarts.keySet())) {
+                cartInvalidation.invalidateAfterCommit(cart.getId());
+                cartResponses.add(new CartResponse(cart));
+            }
         }
+        return new BulkCartResponse(results, cartResponses);
     }
 
-    public String deleteSingleProductFromCart(long id) {
-        if(productRepository.findById(id).isPresent()) {
-            Product product = productRepository.findById(id).get();
-            String returnMessage;
-            if(product.getProductQuantity() == 1) {
-                returnMessage = deleteProductFromCart(id);
+    // One select for all products with their carts, one for the lines of carts that get new products,
+    // with those carts, and one more for carts that get new products and have none yet
+    private void loadOperationTargets(List<CartOperationRequest> operations, Map<Long, Product> products,
+                                      Map<Long, Cart> carts, Map<Long, LineItemIndex> lineItemIndexes) {
+        Set<Long> productIds = new HashSet<>();
+        Set<Long> cartIds = new HashSet<>();
+        for (CartOperationRequest operation : operations) {
+            if (operation.getType() == CartOperationType.ADD_PRODUCTS) {
+                if (operation.getCartId() != null) {
+                    cartIds.add(operation.getCartId());
+                }
+            } else if (operation.getProductId() != null) {
+                productIds.add(operation.getProductId());
             }
-            else {
-                long cartId = product.getCart().getId();
-                if (cartRepository.findById(cartId).isPresent()) {
-                    Double removedProductPrice = product.getProductPrice();
-                    product.setProductQuantity(product.getProductQuantity() - 1);
-                    productRepository.save(product);
-                    Cart cart = cartRepository.findById(cartId).get();
-                    cart.setTotalPrice(cart.getTotalPrice() - removedProductPrice);
-                    cartRepository.save(cart);
-                    returnMessage = "Single product removed from cart successfully";
+        }
+        if (!productIds.isEmpty()) {
+            for (Product product : productRepository.findWithCartByIdIn(productIds)) {
+                products.put(product.getId(), product);
+                if (product.getCart() != null) {
+                    carts.put(product.getCart().getId(), product.getCart());
                 }
-                else {
+            }
+        }
+        if (!cartIds.isEmpty()) {
+            // Read as products, the carts' own product lists stay unloaded until the batch is written
+            Map<Long, List<Product>> lines = new HashMap<>();
+            cartIds.forEach(cartId -> lines.put(cartId, new ArrayList<>()));
+            for (Product product : productRepository.findByCartIdIn(cartIds)) {
+                lines.get(product.getCart().getId()).add(product);
+                carts.put(product.getCart().getId(), product.getCart());
+            }
+            lines.forEach((cartId, cartLines) -> lineItemIndexes.put(cartId, new LineItemIndex(cartLines)));
+        }
+        cartIds.removeAll(carts.keySet());
+        if (!cartIds.isEmpty()) {
+            cartRepository.findAllById(cartIds).forEach(cart -> carts.put(cart.getId(), cart));
+        }
+    }
+
+    // Same checks and messages as the single endpoints
+    private String applyOperation(CartOperationRequest operation, Map<Long, Product> products, Map<Long, Cart> carts,
+                                  Map<Long, LineItemIndex> lineItemIndexes, Map<Long, Cart> changedCarts) {
+        switch (operation.getType()) {
+            case ADD_PRODUCTS: {
+                Cart cart = operation.getCartId() == null ? null : carts.get(operation.getCartId());
+                if (cart == null) {
                     throw new IllegalArgumentException("No cart with given ID exists");
                 }
+                if (operation.getAddedProducts() != null) {
+                    addLines(cart, lineItemIndexes.get(cart.getId()), operation.getAddedProducts());
+                    cart.setTotalPrice(Math.addExact(cart.getTotalPrice(), totalPrice(operation.getAddedProducts())));
+                }
+                changedCarts.put(cart.getId(), cart);
+                return "Products added to cart successfully";
             }
-            return returnMessage;
+            case ADD_SINGLE_PRODUCT: {
+                Product product = batchProduct(operation, products);
+                inventoryService.reserve(product, 1);
+                product.setProductQuantity(Math.addExact(product.getProductQuantity(), 1));
+                addToBatchCartTotal(product.getCart(), product.getProductPrice(), changedCarts);
+                return "Single product added to cart successfully";
+            }
+            case REMOVE_SINGLE_PRODUCT: {
+                Product product = batchProduct(operation, products);
+                if (product.getProductQuantity() <= 1) {
+                    return removeBatchProduct(product, products, lineItemIndexes, changedCarts);
+                }
+                product.setProductQuantity(product.getProductQuantity() - 1);
+                inventoryService.release(product, 1);
+                addToBatchCartTotal(product.getCart(), -product.getProductPrice(), changedCarts);
+                return "Single product removed from cart successfully";
+            }
+            case REMOVE_PRODUCT:
+                return removeBatchProduct(batchProduct(operation, products), products, lineItemIndexes, changedCarts);
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation.getType());
         }
-        else {
+    }
+
+    // A product removed earlier in the batch does not exist for the operations after it
+    private Product batchProduct(CartOperationRequest operation, Map<Long, Product> products) {
+        Product product = operation.getProductId() == null ? null : products.get(operation.getProductId());
+        if (product == null) {
             throw new IllegalArgumentException("Product does not exist");
         }
+        if (product.getCart() == null) {
+            throw new IllegalArgumentException("No cart with given ID exists");
+        }
+        return product;
+    }
+
+    private String removeBatchProduct(Product product, Map<Long, Product> products,
+                                      Map<Long, LineItemIndex> lineItemIndexes, Map<Long, Cart> changedCarts) {
+        productRepository.delete(product);
+        inventoryService.release(product, product.getProductQuantity());
+        products.remove(product.getId());
+        LineItemIndex lineItemIndex = lineItemIndexes.get(product.getCart().getId());
+        if (lineItemIndex != null) {
+            lineItemIndex.remove(product);
+        }
+        addToBatchCartTotal(product.getCart(), -lineTotal(product.getProductPrice(), product.getProductQuantity()), changedCarts);
+        return "Product removed from cart successfully";
+    }
+
+    private static void addToBatchCartTotal(Cart cart, long amount, Map<Long, Cart> changedCarts) {
+        cart.setTotalPrice(Math.addExact(cart.getTotalPrice(), amount));
+        changedCarts.put(cart.getId(), cart);
+    }
+
+    // The delete is checked against the version that was read, so a concurrent quantity
+    // change makes it fail and retry instead of subtracting a stale line total
+    private String removeProduct(Product product) {
+        if (product.getCart() == null) {
+            throw new IllegalArgumentException("No cart with given ID exists");
+        }
+        productRepository.delete(product);
+        productRepository.flush();
+        inventoryService.release(product, product.getProductQuantity());
+        cartRepository.addToTotalPrice(product.getCart().getId(), -lineTotal(product.getProductPrice(), product.getProductQuantity()), Instant.now());
+        cartInvalidation.invalidateAfterCommit(product.getCart().getId());
+        return "Product removed from cart successfully";
+    }
+
+    // Lines need their ids for the ledger, so this runs after they are saved
+    private void reserveStock(List<Product> products) {
+        for (Product product : products) {
+            inventoryService.reserve(product, product.getProductQuantity());
+        }
+    }
+
+    // The product's cart is joined in the same select, so it costs no extra round-trip
+    private Product findProduct(long id) {
+        return productRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Product does not exist"));
+    }
+
+    // Reads of a cart that was changed within the sticky window go to the primary, the others may go to a replica
+    private <T> T readCart(long cartId, Supplier<T> reads) {
+        return recentCartWrites.contains(cartId) ? ReadWriteRoutingDataSource.onPrimary(reads) : reads.get();
     }
 }
@@ -0,0 +1,140 @@
+package org.example.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.example.response.CartResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+// Answers of createCart and addProduct by their Idempotency-Key header, so a client retrying after a timeout
+// gets the original answer instead of a second cart or second lines. A repeated key is answered from memory,
+// a duplicate arriving while the first is still running waits for it. Failed executions are not kept,
+// the client may retry them with the same key. Keys live for cart.idempotency.ttl, at most
+// cart.idempotency.max-keys of them, per instance
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private final Cache<String, Execution> executions;
+
+    @Autowired
+    public IdempotencyStore(@Value("${cart.idempotency.ttl:PT24H}") Duration ttl,
+                            @Value("${cart.idempotency.max-keys:100000}") long maxKeys) {
+        this.executions = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxKeys)
+                .build();
+    }
+
+    // The operation is run directly when the key is null
+    public CartResponse execute(String operation, String key, Object request, Supplier<CartResponse> action) {
+        if (key == null) {
+            return action.get();
+        }
+        Execution execution = new Execution(fingerprint(request));
+        Execution first = claim(operation, key, execution);
+        if (first != null) {
+            return await(first);
+        }
+        try {
+            CartResponse cartResponse = action.get();
+            execution.response.complete(cartResponse);
+            return cartResponse;
+        } catch (RuntimeException e) {
+            fail(operation, key, execution, e);
+            throw e;
+        }
+    }
+
+    public Mono<CartResponse> executeMono(String operation, String key, Object request, Supplier<Mono<CartResponse>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        return Mono.defer(() -> {
+            Execution execution = new Execution(fingerprint(request));
+            Execution first = claim(operation, key, execution);
+            if (first != null) {
+                return Mono.fromFuture(first.response);
+            }
+            return action.get()
+                    .doOnSuccess(cartResponse -> {
+                        if (cartResponse == null) {
+                            fail(operation, key, execution, new IllegalStateException("Request completed without a cart"));
+                        } else {
+                            execution.response.complete(cartResponse);
+                        }
+                    })
+                    .doOnError(e -> fail(operation, key, execution, e))
+                    .doOnCancel(() -> fail(operation, key, execution, new IllegalStateException("Request was cancelled")));
+        });
+    }
+
+    // Null if the execution was stored, otherwise the execution that holds the key
+    private Execution claim(String operation, String key, Execution execution) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must have 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        Execution first = executions.asMap().putIfAbsent(operation + ":" + key, execution);
+        if (first != null && !MessageDigest.isEqual(first.fingerprint, execution.fingerprint)) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different request");
+        }
+        return first;
+    }
+
+    // Waiting duplicates fail with the first execution, the key is free again for the next retry
+    private void fail(String operation, String key, Execution execution, Throwable e) {
+        if (!execution.response.isDone()) {
+            executions.asMap().remove(operation + ":" + key, execution);
+            execution.response.completeExceptionally(e);
+        }
+    }
+
+    private static CartResponse await(Execution execution) {
+        try {
+            return execution.response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the first request with this idempotency key", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    // SHA-256 of the serialized request, a different body reusing the key can't pass for the first one
+    private byte[] fingerprint(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Request can't be serialized", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Execution(byte[] fingerprint, CompletableFuture<CartResponse> response) {
+        Execution(byte[] fingerprint) {
+            this(fingerprint, new CompletableFuture<>());
+        }
+    }
+}
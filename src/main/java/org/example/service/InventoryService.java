@@ -0,0 +1,169 @@
+package org.example.service;
+
+import org.example.config.ReadWriteRoutingDataSource;
+import org.example.entity.CatalogItem;
+import org.example.entity.Product;
+import org.example.entity.StockLedgerEntry;
+import org.example.repository.CatalogItemRepository;
+import org.example.repository.StockLedgerRepository;
+import org.example.request.CreateCatalogItemRequest;
+import org.example.request.CreateProductRequest;
+import org.example.response.CatalogItemResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Catalog items and their stock. The stock of an item is checked and taken in memory, on a StripedStockCounter,
+// and recorded as an insert into the stock ledger in the caller's transaction. Nothing is updated in place,
+// so a flash sale on one item doesn't serialize every cart behind one row lock.
+// Reserved units go back to the counter if the transaction rolls back, released units are handed out again
+// only once the release is committed. The counters are per instance, they assume one application writes the ledger
+@Service
+public class InventoryService {
+
+    @Autowired
+    CatalogItemRepository catalogItemRepository;
+
+    @Autowired
+    StockLedgerRepository stockLedgerRepository;
+
+    private final int numberOfStripes;
+
+    // catalog item id -> available units, loaded from the ledger before the first change of the item
+    private final Map<Long, StripedStockCounter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public InventoryService(@Value("${cart.inventory.stripes:8}") int numberOfStripes) {
+        this.numberOfStripes = numberOfStripes;
+    }
+
+    @Transactional
+    public CatalogItemResponse createItem(CreateCatalogItemRequest createCatalogItemRequest) {
+        if (createCatalogItemRequest.getInitialStock() < 0) {
+            throw new IllegalArgumentException("Stock must not be negative");
+        }
+        if (catalogItemRepository.existsBySku(createCatalogItemRequest.getSku())) {
+            throw new IllegalArgumentException("Catalog item with given SKU already exists");
+        }
+        CatalogItem catalogItem = catalogItemRepository.save(new CatalogItem(createCatalogItemRequest));
+        // A new item has no ledger entries, there is nothing to load
+        counters.put(catalogItem.getId(), new StripedStockCounter(numberOfStripes, 0));
+        if (createCatalogItemRequest.getInitialStock() > 0) {
+            addStock(catalogItem.getId(), createCatalogItemRequest.getInitialStock(), StockLedgerEntry.Reason.RESTOCK, null);
+        }
+        return new CatalogItemResponse(catalogItem, createCatalogItemRequest.getInitialStock());
+    }
+
+    public CatalogItemResponse getItem(long id) {
+        CatalogItem catalogItem = findItem(id);
+        return new CatalogItemResponse(catalogItem, counter(id).available());
+    }
+
+    @Transactional
+    public String restock(long id, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Restocked quantity must be bigger than zero");
+        }
+        findItem(id);
+        addStock(id, quantity, StockLedgerEntry.Reason.RESTOCK, null);
+        return "Catalog item restocked successfully";
+    }
+
+    // Lines that name a catalog item get its name and price, all items are read with one select
+    public void fillFromCatalog(List<CreateProductRequest> createProductRequests) {
+        if (createProductRequests == null) {
+            return;
+        }
+        Set<Long> catalogItemIds = new HashSet<>();
+        for (CreateProductRequest createProductRequest : createProductRequests) {
+            if (createProductRequest.getCatalogItemId() != null) {
+                catalogItemIds.add(createProductRequest.getCatalogItemId());
+            }
+        }
+        if (catalogItemIds.isEmpty()) {
+            return;
+        }
+        Map<Long, CatalogItem> catalogItems = new HashMap<>();
+        catalogItemRepository.findAllById(catalogItemIds).forEach(catalogItem -> catalogItems.put(catalogItem.getId(), catalogItem));
+        for (CreateProductRequest createProductRequest : createProductRequests) {
+            if (createProductRequest.getCatalogItemId() != null) {
+                CatalogItem catalogItem = catalogItems.get(createProductRequest.getCatalogItemId());
+                if (catalogItem == null) {
+                    throw new IllegalArgumentException("Catalog item does not exist");
+                }
+                createProductRequest.setProductName(catalogItem.getItemName());
+                createProductRequest.setProductPrice(catalogItem.getItemPrice());
+            }
+        }
+    }
+
+    // Takes units of the line's catalog item, does nothing for free-form lines
+    public void reserve(Product product, int units) {
+        if (product.getCatalogItemId() == null) {
+            return;
+        }
+        if (units <= 0) {
+            throw new IllegalArgumentException("Product quantity must be bigger than zero");
+        }
+        StripedStockCounter counter = counter(product.getCatalogItemId());
+        if (!counter.tryReserve(units)) {
+            throw new IllegalArgumentException("Not enough stock");
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        counter.release(units);
+                    }
+                }
+            });
+        }
+        stockLedgerRepository.save(new StockLedgerEntry(product.getCatalogItemId(), -units, StockLedgerEntry.Reason.RESERVE, product.getId()));
+    }
+
+    // Gives back units of the line's catalog item, does nothing for free-form lines
+    public void release(Product product, int units) {
+        if (product.getCatalogItemId() != null && units > 0) {
+            addStock(product.getCatalogItemId(), units, StockLedgerEntry.Reason.RELEASE, product.getId());
+        }
+    }
+
+    private void addStock(long catalogItemId, int units, StockLedgerEntry.Reason reason, Long productId) {
+        // Loaded before the entry is written, so the ledger sum can't contain it yet
+        StripedStockCounter counter = counter(catalogItemId);
+        stockLedgerRepository.save(new StockLedgerEntry(catalogItemId, units, reason, productId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counter.release(units);
+                }
+            });
+        } else {
+            counter.release(units);
+        }
+    }
+
+    // Every change of an item goes through its counter first, so once loaded it already holds every ledger
+    // entry this instance writes and is never read from the ledger again. The one read goes to the primary
+    private StripedStockCounter counter(long catalogItemId) {
+        return counters.computeIfAbsent(catalogItemId, id -> new StripedStockCounter(numberOfStripes,
+                ReadWriteRoutingDataSource.onPrimary(() -> stockLedgerRepository.sumDeltas(id))));
+    }
+
+    private CatalogItem findItem(long id) {
+        return catalogItemRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Catalog item does not exist"));
+    }
+}
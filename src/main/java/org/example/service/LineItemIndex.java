@@ -0,0 +1,41 @@
+package org.example.service;
+
+import org.example.entity.Product;
+import org.example.request.CreateProductRequest;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// The lines of one cart by product identity: name, price and catalog item. A product added with the identity
+// of a line the cart already has is merged into that line instead of becoming another row.
+// A changed price is a different identity, the line keeps the price its units were added at
+class LineItemIndex {
+
+    private final Map<LineKey, Product> lines = new HashMap<>();
+
+    LineItemIndex(Collection<Product> products) {
+        products.forEach(this::add);
+    }
+
+    Product find(CreateProductRequest createProductRequest) {
+        return lines.get(new LineKey(createProductRequest.getProductName(), createProductRequest.getProductPrice(),
+                createProductRequest.getCatalogItemId()));
+    }
+
+    // Duplicates that are already in the table stay as they are, the first one takes the new units
+    void add(Product product) {
+        lines.putIfAbsent(LineKey.of(product), product);
+    }
+
+    void remove(Product product) {
+        lines.remove(LineKey.of(product), product);
+    }
+
+    private record LineKey(String productName, long productPrice, Long catalogItemId) {
+
+        static LineKey of(Product product) {
+            return new LineKey(product.getProductName(), product.getProductPrice(), product.getCatalogItemId());
+        }
+    }
+}
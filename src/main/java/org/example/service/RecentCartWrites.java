@@ -0,0 +1,33 @@
+package org.example.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Carts changed within the last cart.datasource.sticky-window. Their reads go to the primary, so a client
+// reads its own change back even while the replicas lag behind. The window has to cover the replica lag
+@Component
+public class RecentCartWrites {
+
+    private final Cache<Long, Boolean> cartIds;
+
+    @Autowired
+    public RecentCartWrites(@Value("${cart.datasource.sticky-window:PT5S}") Duration stickyWindow) {
+        this.cartIds = Caffeine.newBuilder()
+                .expireAfterWrite(stickyWindow)
+                .build();
+    }
+
+    // Called once the change is committed
+    public void record(long cartId) {
+        cartIds.put(cartId, Boolean.TRUE);
+    }
+
+    public boolean contains(long cartId) {
+        return cartIds.getIfPresent(cartId) != null;
+    }
+}
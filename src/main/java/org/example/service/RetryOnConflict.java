@@ -0,0 +1,22 @@
+package org.example.service;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Reruns the whole transaction when it lost an optimistic version check to a concurrent edit.
+// The retry advice is ordered outside the transaction advice, so every attempt reads fresh rows
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Retryable(retryFor = OptimisticLockingFailureException.class,
+        maxAttempts = RetryOnConflict.MAX_ATTEMPTS,
+        backoff = @Backoff(delay = 5, maxDelay = 100, multiplier = 2, random = true))
+public @interface RetryOnConflict {
+
+    int MAX_ATTEMPTS = 5;
+}
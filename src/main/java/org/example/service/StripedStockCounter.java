@@ -0,0 +1,63 @@
+package org.example.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Available units of one catalog item, spread over several stripes. A reservation takes units from the
+// stripe picked by the calling thread and only moves on to the others when that one runs dry, so threads
+// reserving the same item mostly compare-and-set different counters. No stripe ever goes below zero
+public class StripedStockCounter {
+
+    private final AtomicLongArray stripes;
+
+    public StripedStockCounter(int numberOfStripes, long available) {
+        stripes = new AtomicLongArray(numberOfStripes);
+        long share = Math.max(0, available) / numberOfStripes;
+        for (int i = 0; i < numberOfStripes; i++) {
+            stripes.set(i, share);
+        }
+        stripes.addAndGet(0, Math.max(0, available) - share * numberOfStripes);
+    }
+
+    // All or nothing. Units taken from some stripes are put back when the others don't have the rest,
+    // so near the end of the stock a reservation can fail while another one is half way through
+    public boolean tryReserve(int units) {
+        int start = stripeIndex();
+        long missing = units;
+        for (int i = 0; i < stripes.length() && missing > 0; i++) {
+            missing -= take((start + i) % stripes.length(), missing);
+        }
+        if (missing > 0) {
+            release(units - missing);
+            return false;
+        }
+        return true;
+    }
+
+    public void release(long units) {
+        if (units > 0) {
+            stripes.addAndGet(stripeIndex(), units);
+        }
+    }
+
+    public long available() {
+        long available = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            available += stripes.get(i);
+        }
+        return available;
+    }
+
+    private long take(int stripe, long wanted) {
+        while (true) {
+            long current = stripes.get(stripe);
+            long taken = Math.min(current, wanted);
+            if (taken == 0 || stripes.compareAndSet(stripe, current, current - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    private int stripeIndex() {
+        return Math.floorMod(Long.hashCode(Thread.currentThread().getId() * 0x9E3779B97F4A7C15L), stripes.length());
+    }
+}
@@ -0,0 +1,54 @@
+-- Embedded databases start from the schema as of mysql/V6 in one step, later migrations get a counterpart here
+-- with the same version. H2 has real sequences where MySQL keeps them in tables
+CREATE SEQUENCE cart_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE product_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE catalog_item_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE stock_ledger_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE cart (
+    cart_id BIGINT NOT NULL,
+    total_price BIGINT NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    last_modified TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (cart_id)
+);
+
+CREATE INDEX idx_cart_last_modified ON cart (last_modified);
+
+CREATE TABLE catalog_item (
+    catalog_item_id BIGINT NOT NULL,
+    sku VARCHAR(64) NOT NULL,
+    item_name VARCHAR(255),
+    item_price BIGINT NOT NULL,
+    PRIMARY KEY (catalog_item_id),
+    CONSTRAINT uk_catalog_item_sku UNIQUE (sku)
+);
+
+CREATE TABLE product (
+    product_id BIGINT NOT NULL,
+    product_name VARCHAR(255),
+    product_price BIGINT NOT NULL DEFAULT 0,
+    product_quantity INT NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    cart_id BIGINT,
+    catalog_item_id BIGINT,
+    PRIMARY KEY (product_id),
+    CONSTRAINT fk_product_cart FOREIGN KEY (cart_id) REFERENCES cart (cart_id) ON DELETE CASCADE,
+    CONSTRAINT fk_product_catalog_item FOREIGN KEY (catalog_item_id) REFERENCES catalog_item (catalog_item_id)
+);
+
+-- H2 keeps an index of its own for the foreign key next to this one
+CREATE INDEX idx_product_cart_product ON product (cart_id, product_id);
+
+CREATE TABLE stock_ledger (
+    stock_ledger_id BIGINT NOT NULL,
+    catalog_item_id BIGINT NOT NULL,
+    delta INT NOT NULL,
+    reason VARCHAR(16) NOT NULL,
+    product_id BIGINT,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (stock_ledger_id),
+    CONSTRAINT fk_stock_ledger_catalog_item FOREIGN KEY (catalog_item_id) REFERENCES catalog_item (catalog_item_id)
+);
+
+CREATE INDEX idx_stock_ledger_item_delta ON stock_ledger (catalog_item_id, delta);
@@ -0,0 +1,31 @@
+-- Same compaction as mysql/V7, with subqueries instead of multi-table updates
+CREATE TABLE product_line_merge AS
+SELECT MIN(product_id) AS keep_id, cart_id, product_name, product_price, catalog_item_id,
+       SUM(product_quantity) AS product_quantity
+FROM product
+WHERE cart_id IS NOT NULL
+GROUP BY cart_id, product_name, product_price, catalog_item_id
+HAVING COUNT(*) > 1;
+
+CREATE TABLE product_line_merged AS
+SELECT d.product_id, m.keep_id
+FROM product d
+    JOIN product_line_merge m ON m.cart_id = d.cart_id AND m.product_name IS NOT DISTINCT FROM d.product_name
+        AND m.product_price = d.product_price AND m.catalog_item_id IS NOT DISTINCT FROM d.catalog_item_id
+WHERE d.product_id <> m.keep_id;
+
+UPDATE product p
+SET product_quantity = (SELECT m.product_quantity FROM product_line_merge m WHERE m.keep_id = p.product_id),
+    version = version + 1
+WHERE product_id IN (SELECT keep_id FROM product_line_merge);
+
+UPDATE stock_ledger l
+SET product_id = (SELECT d.keep_id FROM product_line_merged d WHERE d.product_id = l.product_id)
+WHERE product_id IN (SELECT product_id FROM product_line_merged);
+
+DELETE FROM product WHERE product_id IN (SELECT product_id FROM product_line_merged);
+
+UPDATE cart SET version = version + 1 WHERE cart_id IN (SELECT cart_id FROM product_line_merge);
+
+DROP TABLE product_line_merged;
+DROP TABLE product_line_merge;
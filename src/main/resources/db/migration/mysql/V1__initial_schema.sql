@@ -0,0 +1,17 @@
+-- Schema as it was inferred by Hibernate before migrations were managed.
+-- Existing databases are baselined at this version and continue with V2
+CREATE TABLE cart (
+    cart_id BIGINT NOT NULL AUTO_INCREMENT,
+    total_price DOUBLE,
+    PRIMARY KEY (cart_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE product (
+    product_id BIGINT NOT NULL AUTO_INCREMENT,
+    product_name VARCHAR(255),
+    product_price DOUBLE,
+    product_quantity DOUBLE,
+    cart_id BIGINT,
+    PRIMARY KEY (product_id),
+    CONSTRAINT fk_product_cart FOREIGN KEY (cart_id) REFERENCES cart (cart_id)
+) ENGINE=InnoDB;
@@ -0,0 +1,15 @@
+-- Optimistic locking versions on both entities
+ALTER TABLE cart ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE product ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- Ids come from pooled sequences so inserts can be batched, MySQL has no sequences
+-- so Hibernate keeps them in single row tables. They are seeded past the current
+-- ids plus one allocation block of 50
+ALTER TABLE cart MODIFY cart_id BIGINT NOT NULL;
+ALTER TABLE product MODIFY product_id BIGINT NOT NULL;
+
+CREATE TABLE cart_seq (next_val BIGINT) ENGINE=InnoDB;
+INSERT INTO cart_seq SELECT COALESCE(MAX(cart_id), 0) + 51 FROM cart;
+
+CREATE TABLE product_seq (next_val BIGINT) ENGINE=InnoDB;
+INSERT INTO product_seq SELECT COALESCE(MAX(product_id), 0) + 51 FROM product;
@@ -0,0 +1,25 @@
+-- Prices and totals move from DOUBLE to BIGINT minor units (cents), quantities to INT
+ALTER TABLE product
+    ADD COLUMN product_price_minor BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN product_quantity_int INT NOT NULL DEFAULT 0;
+
+UPDATE product
+SET product_price_minor = ROUND(COALESCE(product_price, 0) * 100),
+    product_quantity_int = ROUND(COALESCE(product_quantity, 0));
+
+ALTER TABLE product
+    DROP COLUMN product_price,
+    DROP COLUMN product_quantity;
+ALTER TABLE product
+    RENAME COLUMN product_price_minor TO product_price,
+    RENAME COLUMN product_quantity_int TO product_quantity;
+
+-- The old totals drifted from repeated float arithmetic, they are recomputed from the line items
+ALTER TABLE cart ADD COLUMN total_price_minor BIGINT NOT NULL DEFAULT 0;
+
+UPDATE cart c
+SET c.total_price_minor = COALESCE(
+        (SELECT SUM(p.product_price * p.product_quantity) FROM product p WHERE p.cart_id = c.cart_id), 0);
+
+ALTER TABLE cart DROP COLUMN total_price;
+ALTER TABLE cart RENAME COLUMN total_price_minor TO total_price;
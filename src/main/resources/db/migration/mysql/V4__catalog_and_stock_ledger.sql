@@ -0,0 +1,33 @@
+-- Catalog items and their stock ledger. Cart lines added from the catalog point to their item,
+-- the existing lines stay free-form with a NULL catalog_item_id
+CREATE TABLE catalog_item (
+    catalog_item_id BIGINT NOT NULL,
+    sku VARCHAR(64) NOT NULL,
+    item_name VARCHAR(255),
+    item_price BIGINT NOT NULL,
+    PRIMARY KEY (catalog_item_id),
+    CONSTRAINT uk_catalog_item_sku UNIQUE (sku)
+) ENGINE=InnoDB;
+
+CREATE TABLE catalog_item_seq (next_val BIGINT) ENGINE=InnoDB;
+INSERT INTO catalog_item_seq VALUES (1);
+
+-- Only ever inserted into. The index covers the SUM(delta) an item's stock is loaded with
+CREATE TABLE stock_ledger (
+    stock_ledger_id BIGINT NOT NULL,
+    catalog_item_id BIGINT NOT NULL,
+    delta INT NOT NULL,
+    reason VARCHAR(16) NOT NULL,
+    product_id BIGINT,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (stock_ledger_id),
+    INDEX idx_stock_ledger_item_delta (catalog_item_id, delta),
+    CONSTRAINT fk_stock_ledger_catalog_item FOREIGN KEY (catalog_item_id) REFERENCES catalog_item (catalog_item_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE stock_ledger_seq (next_val BIGINT) ENGINE=InnoDB;
+INSERT INTO stock_ledger_seq VALUES (1);
+
+ALTER TABLE product
+    ADD COLUMN catalog_item_id BIGINT,
+    ADD CONSTRAINT fk_product_catalog_item FOREIGN KEY (catalog_item_id) REFERENCES catalog_item (catalog_item_id);
@@ -0,0 +1,7 @@
+-- Time of the last change of a cart in UTC, carts left unchanged for longer than cart.purge.ttl are purged.
+-- Existing carts count as changed now, the default only fills them and is dropped again
+ALTER TABLE cart
+    ADD COLUMN last_modified DATETIME(6) NOT NULL DEFAULT (UTC_TIMESTAMP(6)),
+    ADD INDEX idx_cart_last_modified (last_modified);
+
+ALTER TABLE cart ALTER COLUMN last_modified DROP DEFAULT;
@@ -0,0 +1,25 @@
+-- Products are looked up, fetched in id order, counted and deleted by cart. The composite index serves all of them
+-- without touching the rows for the counts, and takes over from the single-column index that came with the foreign key.
+-- Databases baselined at V1 carry a foreign key named by Hibernate, so the old key and its index are found by column
+SET @old_foreign_key = (SELECT constraint_name FROM information_schema.key_column_usage
+                        WHERE table_schema = DATABASE() AND table_name = 'product'
+                          AND column_name = 'cart_id' AND referenced_table_name = 'cart' LIMIT 1);
+SET @drop_foreign_key = IF(@old_foreign_key IS NULL, 'DO 0',
+                           CONCAT('ALTER TABLE product DROP FOREIGN KEY `', @old_foreign_key, '`'));
+PREPARE statement FROM @drop_foreign_key;
+EXECUTE statement;
+DEALLOCATE PREPARE statement;
+
+ALTER TABLE product ADD INDEX idx_product_cart_product (cart_id, product_id);
+
+SET @old_index = (SELECT index_name FROM information_schema.statistics
+                  WHERE table_schema = DATABASE() AND table_name = 'product' AND index_name = @old_foreign_key LIMIT 1);
+SET @drop_index = IF(@old_index IS NULL, 'DO 0', CONCAT('ALTER TABLE product DROP INDEX `', @old_index, '`'));
+PREPARE statement FROM @drop_index;
+EXECUTE statement;
+DEALLOCATE PREPARE statement;
+
+-- Deleting a cart takes its products with it. The service still deletes them itself first, catalog lines
+-- give their stock back on the way, the cascade only keeps a cart deleted by hand from leaving orphans
+ALTER TABLE product
+    ADD CONSTRAINT fk_product_cart FOREIGN KEY (cart_id) REFERENCES cart (cart_id) ON DELETE CASCADE;
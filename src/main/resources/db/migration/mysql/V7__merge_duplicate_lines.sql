@@ -0,0 +1,34 @@
+-- addProduct now merges a product into the cart's line with the same name, price and catalog item.
+-- Lines added twice before that are compacted the same way: the oldest line of each group takes the units
+-- of the others, their stock ledger entries move to it and they are deleted. Totals don't change
+CREATE TEMPORARY TABLE product_line_merge AS
+SELECT MIN(product_id) AS keep_id, cart_id, product_name, product_price, catalog_item_id,
+       SUM(product_quantity) AS product_quantity
+FROM product
+WHERE cart_id IS NOT NULL
+GROUP BY cart_id, product_name, product_price, catalog_item_id
+HAVING COUNT(*) > 1;
+
+UPDATE product p
+    JOIN product_line_merge m ON m.keep_id = p.product_id
+SET p.product_quantity = m.product_quantity,
+    p.version = p.version + 1;
+
+UPDATE stock_ledger l
+    JOIN product d ON d.product_id = l.product_id
+    JOIN product_line_merge m ON m.cart_id = d.cart_id AND m.product_name <=> d.product_name
+        AND m.product_price = d.product_price AND m.catalog_item_id <=> d.catalog_item_id
+SET l.product_id = m.keep_id
+WHERE d.product_id <> m.keep_id;
+
+DELETE d FROM product d
+    JOIN product_line_merge m ON m.cart_id = d.cart_id AND m.product_name <=> d.product_name
+        AND m.product_price = d.product_price AND m.catalog_item_id <=> d.catalog_item_id
+WHERE d.product_id <> m.keep_id;
+
+-- Every change of a cart's lines bumps its version, cached answers and ETags of these carts are stale
+UPDATE cart c
+    JOIN product_line_merge m ON m.cart_id = c.cart_id
+SET c.version = c.version + 1;
+
+DROP TEMPORARY TABLE product_line_merge;
@@ -0,0 +1,278 @@
+package org.example.buffer;
+
+import org.example.Main;
+import org.example.entity.Cart;
+import org.example.entity.Product;
+import org.example.repository.CartRepository;
+import org.example.repository.ProductRepository;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateProductRequest;
+import org.example.response.CartResponse;
+import org.example.service.CartService;
+import org.example.service.SqlStatementCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The window is long enough that only explicit flushes and the max-pending threshold write clicks
+@SpringBootTest(properties = {
+        "cart.quantity-buffer.enabled=true",
+        "cart.quantity-buffer.window=PT1H",
+        "cart.quantity-buffer.max-pending=50"})
+@AutoConfigureMockMvc
+class QuantityChangeBufferTest {
+
+    final static long made_up_id = 9999;
+
+    final static int number_of_threads = 8;
+
+    final static int clicks_per_thread = 500;
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    QuantityChangeBuffer quantityChangeBuffer;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    private static CreateProductRequest getProduct(String name, long price, int quantity) {
+        CreateProductRequest createProductRequest = new CreateProductRequest();
+        createProductRequest.setProductName(name);
+        createProductRequest.setProductPrice(price);
+        createProductRequest.setProductQuantity(quantity);
+        return createProductRequest;
+    }
+
+    // Apple at 125 and Orange at 250, both with the given quantity
+    private Cart createCart(int quantity) {
+        return cartService.createCart(CreateCartRequest.builder()
+                .addedProducts(List.of(getProduct("Apple", 125, quantity), getProduct("Orange", 250, quantity)))
+                .build());
+    }
+
+    // Straight from the database, past the buffer
+    private int storedQuantity(long productId) {
+        return productRepository.findById(productId).orElseThrow().getProductQuantity();
+    }
+
+    private long storedTotalPrice(long cartId) {
+        return cartRepository.findById(cartId).orElseThrow().getTotalPrice();
+    }
+
+    @Test
+    void clicksShouldBeSeenByReadsBeforeTheyAreWritten() {
+        Cart cart = createCart(2);
+        long appleId = cart.getAddedProducts().get(0).getId();
+        long orangeId = cart.getAddedProducts().get(1).getId();
+
+        for (int i = 0; i < 3; i++) {
+            cartService.addSingleProduct(appleId);
+        }
+        assertEquals("Single product removed from cart successfully", cartService.deleteSingleProductFromCart(orangeId));
+
+        assertEquals(2, storedQuantity(appleId));
+        assertEquals(750, storedTotalPrice(cart.getId()));
+        CartResponse cartResponse = cartService.getCartResponseById(cart.getId());
+        assertEquals(5, cartResponse.getAddedProducts().get(0).getProductQuantity());
+        assertEquals(1, cartResponse.getAddedProducts().get(1).getProductQuantity());
+        assertEquals(875, cartResponse.getTotalPrice());
+
+        quantityChangeBuffer.flush();
+        assertEquals(5, storedQuantity(appleId));
+        assertEquals(1, storedQuantity(orangeId));
+        assertEquals(875, storedTotalPrice(cart.getId()));
+        assertEquals(875, cartService.getCartResponseById(cart.getId()).getTotalPrice());
+        cartService.deleteCart(cart.getId());
+    }
+
+    // Polls with the last ETag between clicks: a poll writes nothing, yet every click changes the ETag
+    @Test
+    void pollingWithIfNoneMatchShouldSeeClicksWithoutWritingThem() throws Exception {
+        Cart cart = createCart(2);
+        long appleId = cart.getAddedProducts().get(0).getId();
+        String eTag = poll(cart.getId(), "W/\"-1\"", 200);
+        assertEquals(eTag, poll(cart.getId(), eTag, 304));
+
+        for (int i = 0; i < 3; i++) {
+            cartService.addSingleProduct(appleId);
+            SqlStatementCounter.clear();
+            String changedETag = poll(cart.getId(), eTag, 200);
+            assertNotEquals(eTag, changedETag);
+            assertEquals(changedETag, poll(cart.getId(), changedETag, 304));
+            assertEquals(0, SqlStatementCounter.count("update"));
+            eTag = changedETag;
+        }
+        assertEquals(2, storedQuantity(appleId));
+        assertEquals(750, storedTotalPrice(cart.getId()));
+
+        // +1 then -1 leaves the cart as it was, but still changes the ETag until the clicks are written
+        cartService.deleteSingleProductFromCart(appleId);
+        String removedETag = poll(cart.getId(), eTag, 200);
+        quantityChangeBuffer.flush();
+        assertEquals(4, storedQuantity(appleId));
+        assertNotEquals(removedETag, poll(cart.getId(), removedETag, 200));
+        cartService.deleteCart(cart.getId());
+    }
+
+    private String poll(long cartId, String ifNoneMatch, int expectedStatus) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(get("/api/cart/getSingleCartById/" + cartId).header("If-None-Match", ifNoneMatch))
+                .andExpect(status().is(expectedStatus)).andReturn();
+        return mvcResult.getResponse().getHeader("ETag");
+    }
+
+    @Test
+    void takingLastUnitShouldRemoveProduct() {
+        Cart cart = createCart(2);
+        long orangeId = cart.getAddedProducts().get(1).getId();
+
+        assertEquals("Single product removed from cart successfully", cartService.deleteSingleProductFromCart(orangeId));
+        assertEquals("Product removed from cart successfully", cartService.deleteSingleProductFromCart(orangeId));
+
+        assertFalse(productRepository.findById(orangeId).isPresent());
+        assertEquals(250, storedTotalPrice(cart.getId()));
+        assertThrows(IllegalArgumentException.class, () -> cartService.addSingleProduct(orangeId));
+        cartService.deleteCart(cart.getId());
+    }
+
+    @Test
+    void clickOnMissingProductShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> cartService.addSingleProduct(made_up_id));
+        assertThrows(IllegalArgumentException.class, () -> cartService.deleteSingleProductFromCart(made_up_id));
+    }
+
+    @Test
+    void reachingMaxPendingShouldWriteClicksBeforeWindowEnds() throws InterruptedException {
+        Cart cart = createCart(1);
+        long appleId = cart.getAddedProducts().get(0).getId();
+
+        for (int i = 0; i < 60; i++) {
+            cartService.addSingleProduct(appleId);
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (storedQuantity(appleId) == 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(storedQuantity(appleId) > 1);
+        assertEquals(61, cartService.getCartResponseById(cart.getId()).getAddedProducts().get(0).getProductQuantity());
+        cartService.deleteCart(cart.getId());
+    }
+
+    // Clicks, reads and flushes all run at the same time, every accepted click must end up in the database
+    @Test
+    void noClicksShouldBeLostUnderConcurrentLoad() throws Exception {
+        List<Cart> carts = List.of(createCart(1000), createCart(1000));
+        List<Product> products = new ArrayList<>();
+        carts.forEach(cart -> products.addAll(cart.getAddedProducts()));
+        AtomicIntegerArray netClicks = new AtomicIntegerArray(products.size());
+        AtomicBoolean clicking = new AtomicBoolean(true);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(number_of_threads + 1);
+        Future<?> flusher = executorService.submit(() -> {
+            while (clicking.get()) {
+                quantityChangeBuffer.flush();
+                Thread.sleep(1);
+            }
+            return null;
+        });
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < number_of_threads; thread++) {
+            futures.add(executorService.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < clicks_per_thread; i++) {
+                    int index = random.nextInt(products.size());
+                    if (random.nextInt(5) < 3) {
+                        cartService.addSingleProduct(products.get(index).getId());
+                        netClicks.incrementAndGet(index);
+                    } else {
+                        cartService.deleteSingleProductFromCart(products.get(index).getId());
+                        netClicks.decrementAndGet(index);
+                    }
+                    if (i % 10 == 0) {
+                        cartService.getCartResponseById(carts.get(random.nextInt(carts.size())).getId());
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        clicking.set(false);
+        flusher.get();
+        executorService.shutdown();
+        quantityChangeBuffer.flush();
+
+        for (int index = 0; index < products.size(); index++) {
+            assertEquals(1000 + netClicks.get(index), storedQuantity(products.get(index).getId()));
+        }
+        for (Cart cart : carts) {
+            long sumOfLineItems = 0L;
+            for (Product product : productRepository.findAllById(cart.getAddedProducts().stream().map(Product::getId).toList())) {
+                sumOfLineItems += product.getProductPrice() * product.getProductQuantity();
+            }
+            assertEquals(sumOfLineItems, storedTotalPrice(cart.getId()));
+            assertEquals(sumOfLineItems, cartService.getCartResponseById(cart.getId()).getTotalPrice());
+            cartService.deleteCart(cart.getId());
+        }
+    }
+
+    // Starts its own application on its own database, which outlives the context
+    @Test
+    void closingContextShouldWriteWaitingClicks() throws Exception {
+        String url = "jdbc:h2:mem:cartbuffer;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        long appleId;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Main.class)
+                .web(WebApplicationType.NONE)
+                .run("--cart.quantity-buffer.enabled=true",
+                        "--cart.quantity-buffer.window=PT1H",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.datasource.url=" + url)) {
+            CartService contextCartService = context.getBean(CartService.class);
+            Cart cart = contextCartService.createCart(CreateCartRequest.builder()
+                    .addedProducts(List.of(getProduct("Apple", 125, 1)))
+                    .build());
+            appleId = cart.getAddedProducts().get(0).getId();
+            contextCartService.addSingleProduct(appleId);
+            contextCartService.addSingleProduct(appleId);
+        }
+
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             ResultSet resultSet = connection.createStatement().executeQuery(
+                     "SELECT p.product_quantity, c.total_price FROM product p JOIN cart c ON c.cart_id = p.cart_id WHERE p.product_id = " + appleId)) {
+            assertTrue(resultSet.next());
+            assertEquals(3, resultSet.getInt(1));
+            assertEquals(375, resultSet.getLong(2));
+        }
+    }
+}
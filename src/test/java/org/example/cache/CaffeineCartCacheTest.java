@@ -0,0 +1,75 @@
+package org.example.cache;
+
+import org.example.response.CartResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaffeineCartCacheTest {
+
+    final static long cart_id = 1L;
+
+    AtomicLong nanos = new AtomicLong();
+
+    AtomicInteger loads = new AtomicInteger();
+
+    CaffeineCartCache cartCache = new CaffeineCartCache(2, Duration.ofMinutes(5), nanos::get, Runnable::run);
+
+    private CartResponse load(long cartId) {
+        loads.incrementAndGet();
+        CartResponse cartResponse = new CartResponse();
+        cartResponse.setId(cartId);
+        return cartResponse;
+    }
+
+    @Test
+    void secondGetShouldBeServedFromCache() {
+        cartCache.get(cart_id, this::load);
+        CartResponse cartResponse = cartCache.get(cart_id, this::load);
+
+        assertEquals(cart_id, cartResponse.getId());
+        assertEquals(1, loads.get());
+        assertEquals(1, cartCache.stats().getHitCount());
+        assertEquals(1, cartCache.stats().getMissCount());
+    }
+
+    @Test
+    void invalidatedCartShouldBeLoadedAgain() {
+        cartCache.get(cart_id, this::load);
+        cartCache.invalidate(cart_id);
+        cartCache.get(cart_id, this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void expiredCartShouldBeLoadedAgain() {
+        cartCache.get(cart_id, this::load);
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+        cartCache.get(cart_id, this::load);
+        assertEquals(2, loads.get());
+        assertEquals(1, cartCache.stats().getEvictionCount());
+    }
+
+    @Test
+    void cacheShouldStayWithinMaximumSize() {
+        for (long cartId = 1; cartId <= 10; cartId++) {
+            cartCache.get(cartId, this::load);
+        }
+        cartCache.get(cart_id, this::load);
+        assertTrue(cartCache.stats().getSize() <= 2);
+        assertTrue(cartCache.stats().getEvictionCount() >= 8);
+    }
+
+    @Test
+    void failedLoadShouldNotBeCached() {
+        assertThrows(IllegalArgumentException.class, () -> cartCache.get(cart_id, cartId -> {
+            throw new IllegalArgumentException("No cart with given ID exists");
+        }));
+        cartCache.get(cart_id, this::load);
+        assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    final static long cart_id = 1L;
+
+    final static int number_of_readers = 8;
+
+    SingleFlight<Long, String> singleFlight = new SingleFlight<>();
+
+    AtomicInteger loads = new AtomicInteger();
+
+    CountDownLatch loadStarted = new CountDownLatch(1);
+
+    CountDownLatch releaseLoad = new CountDownLatch(1);
+
+    ExecutorService executorService = Executors.newFixedThreadPool(number_of_readers + 1);
+
+    @AfterEach
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    // Counts the load and blocks it until released
+    private String blockingLoad(String result) {
+        loads.incrementAndGet();
+        loadStarted.countDown();
+        try {
+            releaseLoad.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+
+    // One reader starts the load, the others arrive while it runs
+    private List<Future<String>> readConcurrently() throws InterruptedException {
+        List<Future<String>> readers = new ArrayList<>();
+        readers.add(executorService.submit(() -> singleFlight.load(cart_id, () -> blockingLoad("cart"))));
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < number_of_readers; i++) {
+            readers.add(executorService.submit(() -> singleFlight.load(cart_id, () -> blockingLoad("second load"))));
+        }
+        Thread.sleep(100);
+        readers.forEach(reader -> assertFalse(reader.isDone()));
+        return readers;
+    }
+
+    @Test
+    void concurrentLoadsShouldShareOneExecution() throws Exception {
+        List<Future<String>> readers = readConcurrently();
+
+        releaseLoad.countDown();
+
+        for (Future<String> reader : readers) {
+            assertEquals("cart", reader.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void failedLoadShouldReachEveryWaiterAndNotBeKept() throws Exception {
+        List<Future<String>> readers = new ArrayList<>();
+        readers.add(executorService.submit(() -> singleFlight.load(cart_id, () -> {
+            blockingLoad("cart");
+            throw new IllegalArgumentException("No cart with given ID exists");
+        })));
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < number_of_readers; i++) {
+            readers.add(executorService.submit(() -> singleFlight.load(cart_id, () -> "second load")));
+        }
+        Thread.sleep(100);
+
+        releaseLoad.countDown();
+
+        for (Future<String> reader : readers) {
+            Exception exception = assertThrows(Exception.class, () -> reader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+        }
+        assertEquals(0, singleFlight.inFlight());
+        assertEquals("cart", singleFlight.load(cart_id, () -> "cart"));
+    }
+
+    @Test
+    void loadAfterCompletionShouldRunAgain() {
+        assertEquals("first", singleFlight.load(cart_id, () -> "first"));
+        assertEquals("second", singleFlight.load(cart_id, () -> "second"));
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    // A write committed while a load runs: readers arriving after it load again
+    @Test
+    void forgottenKeyShouldStartNewLoad() throws Exception {
+        Future<String> first = executorService.submit(() -> singleFlight.load(cart_id, () -> blockingLoad("before write")));
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+
+        singleFlight.forget(cart_id);
+
+        assertEquals("after write", singleFlight.load(cart_id, () -> "after write"));
+        releaseLoad.countDown();
+        assertEquals("before write", first.get(5, TimeUnit.SECONDS));
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void concurrentMonoLoadsShouldShareOneSubscription() {
+        Sinks.One<String> sink = Sinks.one();
+        Mono<String> load = singleFlight.loadMono(cart_id, () -> {
+            loads.incrementAndGet();
+            return sink.asMono();
+        });
+        List<String> results = new ArrayList<>();
+        load.subscribe(results::add);
+        load.subscribe(results::add);
+        // A reader that gives up doesn't cancel the load for the others
+        Disposable cancelled = load.subscribe(results::add);
+        cancelled.dispose();
+        assertEquals(1, singleFlight.inFlight());
+
+        sink.tryEmitValue("cart");
+
+        assertEquals(List.of("cart", "cart"), results);
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void failedMonoLoadShouldReachEverySubscriberAndNotBeKept() {
+        Sinks.One<String> sink = Sinks.one();
+        Mono<String> load = singleFlight.loadMono(cart_id, sink::asMono);
+        List<Throwable> errors = new ArrayList<>();
+        load.subscribe(value -> { }, errors::add);
+        load.subscribe(value -> { }, errors::add);
+
+        sink.tryEmitError(new IllegalArgumentException("No cart with given ID exists"));
+
+        assertEquals(2, errors.size());
+        errors.forEach(error -> assertInstanceOf(IllegalArgumentException.class, error));
+        assertEquals(0, singleFlight.inFlight());
+        assertNull(singleFlight.loadMono(cart_id, Mono::empty).block());
+        assertEquals(0, singleFlight.inFlight());
+    }
+}
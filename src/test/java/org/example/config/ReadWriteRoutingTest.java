@@ -0,0 +1,143 @@
+package org.example.config;
+
+import org.example.entity.Cart;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateProductRequest;
+import org.example.service.CartService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two in-memory databases stand in for the primary and its replica, replicate() copies the one into the other
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadWriteRoutingTest.primary_url,
+        "cart.datasource.replicas[0].url=" + ReadWriteRoutingTest.replica_url,
+        "cart.datasource.replicas[0].username=sa",
+        "cart.datasource.replicas[0].password=",
+        "cart.datasource.sticky-window=PT0.5S"})
+class ReadWriteRoutingTest {
+
+    final static String primary_url = "jdbc:h2:mem:cartprimary;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    final static String replica_url = "jdbc:h2:mem:cartreplica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    final static long sticky_window_millis = 500;
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    DataSource dataSource;
+
+    private static CreateProductRequest getProduct(String name, long price, int quantity) {
+        CreateProductRequest createProductRequest = new CreateProductRequest();
+        createProductRequest.setProductName(name);
+        createProductRequest.setProductPrice(price);
+        createProductRequest.setProductQuantity(quantity);
+        return createProductRequest;
+    }
+
+    private Cart createCart() {
+        return cartService.createCart(CreateCartRequest.builder()
+                .addedProducts(List.of(getProduct("Apple", 125, 1)))
+                .build());
+    }
+
+    private static void replicate() throws Exception {
+        Path script = Files.createTempFile("cartprimary", ".sql");
+        try (Connection primary = DriverManager.getConnection(primary_url, "sa", "");
+             Connection replica = DriverManager.getConnection(replica_url, "sa", "")) {
+            primary.createStatement().execute("SCRIPT TO '" + script + "'");
+            replica.createStatement().execute("DROP ALL OBJECTS");
+            replica.createStatement().execute("RUNSCRIPT FROM '" + script + "'");
+        } finally {
+            Files.delete(script);
+        }
+    }
+
+    // Changes the replica only, reads that see the value were answered by the replica
+    private static void setReplicaTotalPrice(long cartId, long totalPrice) throws SQLException {
+        try (Connection replica = DriverManager.getConnection(replica_url, "sa", "");
+             PreparedStatement statement = replica.prepareStatement("UPDATE cart SET total_price = ? WHERE cart_id = ?")) {
+            statement.setLong(1, totalPrice);
+            statement.setLong(2, cartId);
+            assertEquals(1, statement.executeUpdate());
+        }
+    }
+
+    private static boolean cartExists(String url, long cartId) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             ResultSet resultSet = connection.createStatement().executeQuery("SELECT COUNT(*) FROM cart WHERE cart_id = " + cartId)) {
+            resultSet.next();
+            return resultSet.getInt(1) == 1;
+        }
+    }
+
+    @Test
+    void dataSourceShouldRouteBehindLazyConnectionProxy() throws SQLException {
+        assertTrue(dataSource.isWrapperFor(ReadWriteRoutingDataSource.class));
+    }
+
+    @Test
+    void writesShouldGoToPrimary() throws Exception {
+        replicate();
+
+        Cart cart = createCart();
+
+        assertTrue(cartExists(primary_url, cart.getId()));
+        assertFalse(cartExists(replica_url, cart.getId()));
+    }
+
+    @Test
+    void readsShouldGoToReplicaOnceStickyWindowIsOver() throws Exception {
+        Cart cart = createCart();
+        replicate();
+        setReplicaTotalPrice(cart.getId(), 1);
+
+        Thread.sleep(sticky_window_millis + 100);
+
+        assertEquals(1, cartService.getSingleCartById(cart.getId()).getTotalPrice());
+        assertTrue(cartService.getAllCarts().stream().anyMatch(replicaCart -> replicaCart.getId() == cart.getId() && replicaCart.getTotalPrice() == 1));
+    }
+
+    // The replica has not caught up, the client still reads its own change
+    @Test
+    void changedCartShouldBeReadFromPrimaryWithinStickyWindow() throws Exception {
+        Cart changedCart = createCart();
+        Cart otherCart = createCart();
+        replicate();
+        Thread.sleep(sticky_window_millis + 100);
+
+        cartService.addSingleProduct(changedCart.getAddedProducts().get(0).getId());
+        setReplicaTotalPrice(otherCart.getId(), 1);
+
+        assertEquals(250, cartService.getSingleCartById(changedCart.getId()).getTotalPrice());
+        assertEquals(1, cartService.getSingleCartById(otherCart.getId()).getTotalPrice());
+
+        Thread.sleep(sticky_window_millis + 100);
+        assertEquals(125, cartService.getSingleCartById(changedCart.getId()).getTotalPrice());
+    }
+
+    @Test
+    void createdCartShouldBeReadableBeforeItIsReplicated() throws Exception {
+        replicate();
+
+        Cart cart = createCart();
+
+        assertFalse(cartExists(replica_url, cart.getId()));
+        assertEquals(125, cartService.getSingleCartById(cart.getId()).getTotalPrice());
+        assertEquals(cart.getVersion(), cartService.getCartVersion(cart.getId()).version());
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springdoc.webmvc.api.OpenApiWebMvcResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "cart.startup.lazy-packages=org.springdoc")
+@AutoConfigureMockMvc
+class StartupConfigTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ConfigurableListableBeanFactory beanFactory;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private String[] openApiResourceNames() {
+        return beanFactory.getBeanNamesForType(OpenApiWebMvcResource.class, true, false);
+    }
+
+    @Test
+    void openApiDocumentationShouldBeCreatedOnFirstUse() throws Exception {
+        assertEquals(1, openApiResourceNames().length);
+        String beanName = openApiResourceNames()[0];
+        assertTrue(beanFactory.getBeanDefinition(beanName).isLazyInit());
+        assertFalse(beanFactory.containsSingleton(beanName));
+
+        mockMvc.perform(get("/v3/api-docs")).andExpect(status().isOk());
+
+        assertTrue(beanFactory.containsSingleton(beanName));
+    }
+
+    @Test
+    void cartBeansShouldStillBeCreatedDuringStartup() {
+        assertFalse(beanFactory.getBeanDefinition("cartService").isLazyInit());
+        assertFalse(beanFactory.getBeanDefinition("cartController").isLazyInit());
+    }
+
+    @Test
+    void startupTimesShouldBeReported() throws Exception {
+        assertNotNull(meterRegistry.find("cart.startup.ready.time").timeGauge());
+
+        mockMvc.perform(get("/api/cart/getCarts")).andExpect(status().isOk());
+
+        assertTrue(meterRegistry.get("cart.startup.first-request.time").timeGauge().value() > 0);
+    }
+}
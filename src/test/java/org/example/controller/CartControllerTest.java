@@ -3,11 +3,21 @@ package org.example.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.entity.Cart;
 import org.example.entity.Product;
+import org.example.request.BulkCartRequest;
+import org.example.request.CartOperationRequest;
+import org.example.request.CartOperationType;
 import org.example.request.CreateCartRequest;
 import org.example.request.CreateProductRequest;
 import org.example.request.UpdateCartRequest;
+import org.example.response.BulkCartResponse;
+import org.example.response.CartOperationResponse;
+import org.example.response.CartPageResponse;
 import org.example.response.CartResponse;
+import org.example.response.CartSummaryPageResponse;
+import org.example.response.CartSummaryResponse;
+import org.example.response.CartVersion;
 import org.example.response.ProductResponse;
+import org.example.service.CartOperationException;
 import org.example.service.CartService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -23,11 +33,13 @@ import org.springframework.test.web.servlet.MvcResult;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -49,7 +61,7 @@ public class CartControllerTest {
     final static long cart_id_2 = 2L;
     final static long cart_id_3 = 3L;
 
-    private CreateProductRequest getProductsRequests(String name, double price, double quantity) {
+    private CreateProductRequest getProductsRequests(String name, long price, int quantity) {
         CreateProductRequest createProductRequest = new CreateProductRequest();
         createProductRequest.setProductName(name);
         createProductRequest.setProductPrice(price);
@@ -57,8 +69,8 @@ public class CartControllerTest {
         return createProductRequest;
     }
 
-    private Cart getCart(String name1, double price1, double quantity1,
-                         String name2, double price2, double quantity2) {
+    private Cart getCart(String name1, long price1, int quantity1,
+                         String name2, long price2, int quantity2) {
         CreateCartRequest createCartRequest = CreateCartRequest.builder().build();
         CreateProductRequest createProductRequest1 = getProductsRequests(name1, price1, quantity1);
         CreateProductRequest createProductRequest2 = getProductsRequests(name2, price2, quantity2);
@@ -71,11 +83,11 @@ public class CartControllerTest {
     }
 
     private List<Cart> getTwoCarts () {
-        Cart cart1 = getCart("Orange", 1.5d, 3d,
-                "Banana", 1.5d, 1d);
+        Cart cart1 = getCart("Orange", 150, 3,
+                "Banana", 150, 1);
 
-        Cart cart2 = getCart("Cherry", 2d, 2d,
-                "Apple", 0.5d, 3d);
+        Cart cart2 = getCart("Cherry", 200, 2,
+                "Apple", 50, 3);
         cart1.setId(cart_id_2);
         cart2.setId(cart_id_3);
 
@@ -93,25 +105,106 @@ public class CartControllerTest {
         var carts = Arrays.asList(objectMapper.readValue(mvcResult.getResponse().getContentAsString(), CartResponse[].class));
 
         assertEquals(2, carts.size());
-        assertEquals(6d, carts.get(0).getTotalPrice());
+        assertEquals(600, carts.get(0).getTotalPrice());
         assertEquals(cart_id_2, carts.get(0).getId());
-        assertEquals(5.5d, carts.get(1).getTotalPrice());
+        assertEquals(550, carts.get(1).getTotalPrice());
         assertEquals(cart_id_3, carts.get(1).getId());
     }
 
+    @Test
+    void shouldGetCartsPageWithNextCursor() throws Exception {
+        Mockito.when(cartService.getCartsAfter(0, 2)).thenReturn(getTwoCarts());
+        MvcResult mvcResult = mockMvc.perform(get("/api/cart/getCarts?afterId=0&size=2")).andReturn();
+        var page = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), CartPageResponse.class);
+
+        assertEquals(2, page.getCarts().size());
+        assertEquals(cart_id_2, page.getCarts().get(0).getId());
+        assertEquals(cart_id_3, page.getNextCursor());
+    }
+
+    @Test
+    void lastCartsPageShouldHaveNoNextCursor() throws Exception {
+        Mockito.when(cartService.getCartsAfter(0, 50)).thenReturn(getTwoCarts());
+        MvcResult mvcResult = mockMvc.perform(get("/api/cart/getCarts")).andReturn();
+        var page = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), CartPageResponse.class);
+
+        assertEquals(2, page.getCarts().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void shouldGetCartSummariesPageWithPriceFilter() throws Exception {
+        Mockito.when(cartService.getCartSummariesAfter(0, 500, 1000, 2))
+                .thenReturn(List.of(new CartSummaryResponse(cart_id_2, 600, 2), new CartSummaryResponse(cart_id_3, 550, 2)));
+        MvcResult mvcResult = mockMvc.perform(get("/api/cart/getCartSummaries?size=2&minTotalPrice=500&maxTotalPrice=1000")).andReturn();
+        var page = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), CartSummaryPageResponse.class);
+
+        assertEquals(2, page.getCarts().size());
+        assertEquals(600, page.getCarts().get(0).getTotalPrice());
+        assertEquals(2, page.getCarts().get(0).getLineCount());
+        assertEquals(cart_id_3, page.getNextCursor());
+    }
+
+    @Test
+    void shouldStreamAllCartsAsNdjson() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            Consumer<Cart> consumer = invocation.getArgument(0);
+            getTwoCarts().forEach(consumer);
+            return null;
+        }).when(cartService).streamAllCarts(any());
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/cart/streamAllCarts"))
+                .andExpect(request().asyncStarted()).andReturn();
+        String body = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(cart_id_2, objectMapper.readValue(lines[0], CartResponse.class).getId());
+        assertEquals(550, objectMapper.readValue(lines[1], CartResponse.class).getTotalPrice());
+    }
+
     @Test
     void shouldGetSingleCartById() throws Exception {
-        Mockito.when(cartService.getSingleCartById(cart_id_2)).thenReturn(getCart("Orange", 1.5d, 3d,
-                "Banana", 1.5d, 1d));
+        Mockito.when(cartService.getCartResponseById(cart_id_2)).thenReturn(new CartResponse(getCart("Orange", 150, 3,
+                "Banana", 150, 1)));
         MvcResult mvcResult = mockMvc.perform(get("/api/cart/getSingleCartById/" + cart_id_2)).andReturn();
         var cart = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), CartResponse.class);
         Assertions.assertNotNull(cart);
-        assertEquals(6d, cart.getTotalPrice());
+        assertEquals(600, cart.getTotalPrice());
+    }
+
+    @Test
+    void getSingleCartByIdShouldSendVersionAsETag() throws Exception {
+        CartResponse cartResponse = new CartResponse(getCart("Orange", 150, 3, "Banana", 150, 1));
+        cartResponse.setVersion(4);
+        Mockito.when(cartService.getCartVersion(cart_id_2)).thenReturn(new CartVersion(4));
+        Mockito.when(cartService.getCartResponseById(cart_id_2)).thenReturn(cartResponse);
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/cart/getSingleCartById/" + cart_id_2)
+                        .header("If-None-Match", "W/\"3\""))
+                .andExpect(status().isOk()).andReturn();
+
+        assertEquals("W/\"4\"", mvcResult.getResponse().getHeader("ETag"));
+        assertEquals(600, objectMapper.readValue(mvcResult.getResponse().getContentAsString(), CartResponse.class).getTotalPrice());
+    }
+
+    @Test
+    void getSingleCartByIdShouldAnswerNotModifiedWithoutLoadingCart() throws Exception {
+        Mockito.when(cartService.getCartVersion(cart_id_2)).thenReturn(new CartVersion(4));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/cart/getSingleCartById/" + cart_id_2)
+                        .header("If-None-Match", "W/\"4\""))
+                .andExpect(status().isNotModified()).andReturn();
+
+        assertEquals("", mvcResult.getResponse().getContentAsString());
+        assertEquals("W/\"4\"", mvcResult.getResponse().getHeader("ETag"));
+        Mockito.verify(cartService, Mockito.never()).getCartResponseById(anyLong());
     }
 
     @Test
     void getSingleCartByIdShouldThrow() throws Exception {
-        Mockito.when(cartService.getSingleCartById(cart_id_2)).thenThrow(new IllegalArgumentException("No cart with given ID exists"));
+        Mockito.when(cartService.getCartResponseById(cart_id_2)).thenThrow(new IllegalArgumentException("No cart with given ID exists"));
         try {
             mockMvc.perform(get("/api/cart/getSingleCartById/" + cart_id_2));
             fail();
@@ -123,54 +216,54 @@ public class CartControllerTest {
     @Test
     void shouldCreateCart() throws Exception {
         Mockito.when(cartService.createCart(ArgumentMatchers.any()))
-                .thenReturn(getCart("Orange", 1.5d, 3d,
-                "Banana", 1.5d, 1d));
+                .thenReturn(getCart("Orange", 150, 3,
+                "Banana", 150, 1));
 
         List<CreateProductRequest> productList = new ArrayList<>();
-        productList.add(getProductsRequests("Orange", 1.5d, 3d));
-        productList.add(getProductsRequests("Banana", 1.5d, 1d));
+        productList.add(getProductsRequests("Orange", 150, 3));
+        productList.add(getProductsRequests("Banana", 150, 1));
         MvcResult mvcResult = mockMvc.perform(post("/api/cart/createCart")
                         .content(objectMapper.writeValueAsBytes(CreateCartRequest.builder()
                                         .addedProducts(productList)
-                                        .totalPrice(6.0d)
+                                        .totalPrice(600L)
                                 .build()))
                         .contentType("application/json"))
                 .andExpect(status().isOk()).andReturn();
 
         var postedCart = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), CartResponse.class);
-        assertEquals(6.0d, postedCart.getTotalPrice());
+        assertEquals(600, postedCart.getTotalPrice());
         assertEquals(2, postedCart.getAddedProducts().size());
         assertEquals("Orange", postedCart.getAddedProducts().get(0).getProductName());
-        assertEquals(3d, postedCart.getAddedProducts().get(0).getProductQuantity());
-        assertEquals(1.5d, postedCart.getAddedProducts().get(0).getProductPrice());
+        assertEquals(3, postedCart.getAddedProducts().get(0).getProductQuantity());
+        assertEquals(150, postedCart.getAddedProducts().get(0).getProductPrice());
         assertEquals("Banana", postedCart.getAddedProducts().get(1).getProductName());
-        assertEquals(1d, postedCart.getAddedProducts().get(1).getProductQuantity());
-        assertEquals(1.5d, postedCart.getAddedProducts().get(1).getProductPrice());
+        assertEquals(1, postedCart.getAddedProducts().get(1).getProductQuantity());
+        assertEquals(150, postedCart.getAddedProducts().get(1).getProductPrice());
     }
 
     @Test
     void shouldAddProduct() throws Exception {
         Mockito.when(cartService.addProduct(ArgumentMatchers.any()))
-                .thenReturn(getCart("Pineapple", 2.5d, 2d,
-                        "Cherry", 2.0d, 1d));
+                .thenReturn(getCart("Pineapple", 250, 2,
+                        "Cherry", 200, 1));
 
         CreateProductRequest createProductRequest1 = new CreateProductRequest();
-        createProductRequest1.setProductQuantity(2d);
-        createProductRequest1.setProductPrice(2.5d);
+        createProductRequest1.setProductQuantity(2);
+        createProductRequest1.setProductPrice(250);
         createProductRequest1.setProductName("Pineapple");
         Product product1 = new Product(createProductRequest1);
         ProductResponse productResponse1 = new ProductResponse(product1);
 
         CreateProductRequest createProductRequest2 = new CreateProductRequest();
-        createProductRequest2.setProductQuantity(1d);
-        createProductRequest2.setProductPrice(2.0d);
+        createProductRequest2.setProductQuantity(1);
+        createProductRequest2.setProductPrice(200);
         createProductRequest2.setProductName("Cherry");
         Product product2 = new Product(createProductRequest2);
         ProductResponse productResponse2 = new ProductResponse(product2);
 
         MvcResult mvcResult = mockMvc.perform(put("/api/cart/addProduct")
                         .content(objectMapper.writeValueAsBytes(UpdateCartRequest.builder()
-                                .totalPrice(6.0d)
+                                .totalPrice(600L)
                                 .build()))
                         .contentType("application/json"))
                 .andExpect(status().isOk()).andReturn();
@@ -286,7 +379,7 @@ public class CartControllerTest {
     @Test
     void clearCartShouldThrowCartIllegal() throws Exception {
         Mockito.doThrow(new IllegalArgumentException("No cart with given ID exists"))
-                .when(cartService).setTotalPriceToZero(cart_id_2);
+                .when(cartService).clearCart(cart_id_2);
 
         try {
             mockMvc.perform(delete("/api/cart/clearCart/" + cart_id_2));
@@ -389,4 +482,61 @@ public class CartControllerTest {
             Assertions.assertTrue(e.getMessage().contains("Product does not exist"));
         }
     }
+
+    private BulkCartRequest getBulkRequest() {
+        CartOperationRequest addSingleProduct = new CartOperationRequest();
+        addSingleProduct.setType(CartOperationType.ADD_SINGLE_PRODUCT);
+        addSingleProduct.setProductId(product_id);
+        CartOperationRequest removeProduct = new CartOperationRequest();
+        removeProduct.setType(CartOperationType.REMOVE_PRODUCT);
+        removeProduct.setProductId(product_id);
+        BulkCartRequest bulkCartRequest = new BulkCartRequest();
+        bulkCartRequest.setOperations(List.of(addSingleProduct, removeProduct));
+        return bulkCartRequest;
+    }
+
+    @Test
+    void shouldApplyOperations() throws Exception {
+        Mockito.when(cartService.applyOperations(ArgumentMatchers.anyList()))
+                .thenReturn(new BulkCartResponse(List.of(
+                        new CartOperationResponse(0, CartOperationType.ADD_SINGLE_PRODUCT, "Single product added to cart successfully"),
+                        new CartOperationResponse(1, CartOperationType.REMOVE_PRODUCT, "Product removed from cart successfully")),
+                        List.of(new CartResponse(getCart("Orange", 150, 3, "Banana", 150, 1)))));
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/cart/applyOperations")
+                        .content(objectMapper.writeValueAsBytes(getBulkRequest()))
+                        .contentType("application/json"))
+                .andExpect(status().isOk()).andReturn();
+
+        var bulkCartResponse = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), BulkCartResponse.class);
+        assertEquals(2, bulkCartResponse.getResults().size());
+        assertEquals(CartOperationType.REMOVE_PRODUCT, bulkCartResponse.getResults().get(1).getType());
+        assertEquals(600, bulkCartResponse.getCarts().get(0).getTotalPrice());
+    }
+
+    @Test
+    void applyOperationsShouldAnswerWithFailedOperation() throws Exception {
+        Mockito.when(cartService.applyOperations(ArgumentMatchers.anyList()))
+                .thenThrow(new CartOperationException(1, CartOperationType.REMOVE_PRODUCT, new IllegalArgumentException("Product does not exist")));
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/cart/applyOperations")
+                        .content(objectMapper.writeValueAsBytes(getBulkRequest()))
+                        .contentType("application/json"))
+                .andExpect(status().isBadRequest()).andReturn();
+
+        var failedOperation = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), CartOperationResponse.class);
+        assertEquals(1, failedOperation.getIndex());
+        assertEquals("Product does not exist", failedOperation.getMessage());
+    }
+
+    @Test
+    void applyOperationsShouldRejectOperationWithoutType() throws Exception {
+        BulkCartRequest bulkCartRequest = getBulkRequest();
+        bulkCartRequest.getOperations().get(0).setType(null);
+
+        mockMvc.perform(post("/api/cart/applyOperations")
+                        .content(objectMapper.writeValueAsBytes(bulkCartRequest))
+                        .contentType("application/json"))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,148 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.example.entity.Cart;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateProductRequest;
+import org.example.response.CartResponse;
+import org.example.service.CartService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Against a running Tomcat, compression happens in the connector and not in MockMvc
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CartEncodingTest {
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    CartService cartService;
+
+    HttpClient httpClient = HttpClient.newHttpClient();
+
+    List<Long> cartIds = new ArrayList<>();
+
+    @AfterEach
+    void deleteCarts() {
+        cartIds.forEach(cartService::deleteCart);
+    }
+
+    private long createCart(int numberOfLines) {
+        List<CreateProductRequest> addedProducts = new ArrayList<>();
+        for (int i = 0; i < numberOfLines; i++) {
+            addedProducts.add(getProduct("Product number " + i, 99 + i % 50 * 100L, 1 + i % 5));
+        }
+        Cart cart = cartService.createCart(CreateCartRequest.builder().addedProducts(addedProducts).build());
+        cartIds.add(cart.getId());
+        return cart.getId();
+    }
+
+    private static CreateProductRequest getProduct(String name, long price, int quantity) {
+        CreateProductRequest createProductRequest = new CreateProductRequest();
+        createProductRequest.setProductName(name);
+        createProductRequest.setProductPrice(price);
+        createProductRequest.setProductQuantity(quantity);
+        return createProductRequest;
+    }
+
+    private HttpResponse<byte[]> getCart(long cartId, String accept, String acceptEncoding) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/cart/getSingleCartById/" + cartId))
+                .header("Accept", accept);
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @Test
+    void cartShouldBeSentAsCborWhenAskedFor() throws Exception {
+        long cartId = createCart(100);
+
+        HttpResponse<byte[]> json = getCart(cartId, "application/json", null);
+        HttpResponse<byte[]> cbor = getCart(cartId, "application/cbor", null);
+
+        assertEquals("application/cbor", cbor.headers().firstValue("Content-Type").orElseThrow());
+        CartResponse fromJson = new ObjectMapper().readValue(json.body(), CartResponse.class);
+        CartResponse fromCbor = new CBORMapper().readValue(cbor.body(), CartResponse.class);
+        assertEquals(fromJson.getTotalPrice(), fromCbor.getTotalPrice());
+        assertEquals(fromJson.getAddedProducts(), fromCbor.getAddedProducts());
+        assertTrue(cbor.body().length < json.body().length);
+    }
+
+    @Test
+    void cartShouldBeSentAsSmileWhenAskedFor() throws Exception {
+        long cartId = createCart(100);
+
+        HttpResponse<byte[]> smile = getCart(cartId, "application/x-jackson-smile", null);
+
+        assertEquals("application/x-jackson-smile", smile.headers().firstValue("Content-Type").orElseThrow());
+        assertEquals(100, new SmileMapper().readValue(smile.body(), CartResponse.class).getAddedProducts().size());
+    }
+
+    @Test
+    void jsonShouldStayTheDefault() throws Exception {
+        long cartId = createCart(1);
+
+        HttpResponse<byte[]> response = getCart(cartId, "*/*", null);
+
+        assertTrue(response.headers().firstValue("Content-Type").orElseThrow().startsWith("application/json"));
+    }
+
+    @Test
+    void largeJsonCartShouldBeGzipped() throws Exception {
+        long cartId = createCart(100);
+
+        HttpResponse<byte[]> response = getCart(cartId, "application/json", "gzip");
+
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElseThrow());
+        try (InputStream inputStream = new GZIPInputStream(new java.io.ByteArrayInputStream(response.body()))) {
+            assertEquals(100, new ObjectMapper().readValue(inputStream, CartResponse.class).getAddedProducts().size());
+        }
+    }
+
+    @Test
+    void smallJsonCartShouldNotBeCompressed() throws Exception {
+        long cartId = createCart(1);
+
+        HttpResponse<byte[]> response = getCart(cartId, "application/json", "gzip");
+
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty());
+    }
+
+    @Test
+    void createCartShouldAcceptCborBody() throws Exception {
+        byte[] body = new CBORMapper().writeValueAsBytes(CreateCartRequest.builder()
+                .addedProducts(List.of(getProduct("Apple", 125, 2)))
+                .build());
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/cart/createCart"))
+                .header("Content-Type", "application/cbor")
+                .header("Accept", "application/cbor")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        CartResponse cartResponse = new CBORMapper().readValue(response.body(), CartResponse.class);
+        cartIds.add(cartResponse.getId());
+        assertEquals(250, cartResponse.getTotalPrice());
+    }
+}
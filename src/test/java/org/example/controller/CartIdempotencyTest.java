@@ -0,0 +1,154 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateProductRequest;
+import org.example.request.UpdateCartRequest;
+import org.example.response.CartResponse;
+import org.example.service.CartService;
+import org.example.service.IdempotencyStore;
+import org.example.service.SqlStatementCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class CartIdempotencyTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    IdempotencyStore idempotencyStore;
+
+    @Autowired
+    CartService cartService;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    private static CreateProductRequest getProduct(String name, long price, int quantity) {
+        CreateProductRequest createProductRequest = new CreateProductRequest();
+        createProductRequest.setProductName(name);
+        createProductRequest.setProductPrice(price);
+        createProductRequest.setProductQuantity(quantity);
+        return createProductRequest;
+    }
+
+    private CartResponse perform(MockHttpServletRequestBuilder request, Object body, String idempotencyKey) throws Exception {
+        String response = mockMvc.perform(request.contentType(MediaType.APPLICATION_JSON)
+                        .header(IdempotencyStore.HEADER, idempotencyKey)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, CartResponse.class);
+    }
+
+    @Test
+    void retriedCreateCartShouldReturnFirstCartWithoutTouchingDatabase() throws Exception {
+        CreateCartRequest createCartRequest = CreateCartRequest.builder()
+                .addedProducts(List.of(getProduct("Apple", 125, 1))).build();
+        CartResponse first = perform(post("/api/cart/createCart"), createCartRequest, "create-retry");
+
+        SqlStatementCounter.clear();
+        CartResponse retry = perform(post("/api/cart/createCart"), createCartRequest, "create-retry");
+
+        assertEquals(0, SqlStatementCounter.count());
+        assertEquals(first.getId(), retry.getId());
+        assertEquals(first.getAddedProducts(), retry.getAddedProducts());
+        assertNotEquals(first.getId(), perform(post("/api/cart/createCart"), createCartRequest, "create-other").getId());
+    }
+
+    @Test
+    void retriedAddProductShouldAddLinesOnce() throws Exception {
+        long cartId = cartService.createCart(CreateCartRequest.builder()
+                .addedProducts(List.of(getProduct("Apple", 125, 1))).build()).getId();
+        UpdateCartRequest updateCartRequest = UpdateCartRequest.builder()
+                .id(cartId).addedProducts(List.of(getProduct("Banana", 250, 1))).build();
+
+        CartResponse first = perform(put("/api/cart/addProduct"), updateCartRequest, "add-retry");
+        CartResponse retry = perform(put("/api/cart/addProduct"), updateCartRequest, "add-retry");
+
+        assertEquals(375, retry.getTotalPrice());
+        assertEquals(first.getAddedProducts(), retry.getAddedProducts());
+        assertEquals(2, cartService.getSingleCartById(cartId).getAddedProducts().size());
+    }
+
+    @Test
+    void keyReusedForDifferentRequestShouldBeRejected() {
+        CreateCartRequest apple = CreateCartRequest.builder().addedProducts(List.of(getProduct("Apple", 125, 1))).build();
+        CreateCartRequest orange = CreateCartRequest.builder().addedProducts(List.of(getProduct("Orange", 250, 1))).build();
+        idempotencyStore.execute("createCart", "reused", apple, CartResponse::new);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyStore.execute("createCart", "reused", orange, CartResponse::new));
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyStore.execute("createCart", " ", apple, CartResponse::new));
+    }
+
+    // The duplicate arrives while the first is still running and gets its answer
+    @Test
+    void concurrentDuplicateShouldWaitForFirstExecution() throws Exception {
+        CreateCartRequest createCartRequest = CreateCartRequest.builder().build();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        CartResponse cartResponse = new CartResponse();
+        cartResponse.setId(42);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        Future<CartResponse> first = executorService.submit(() -> idempotencyStore.execute("createCart", "in-flight", createCartRequest, () -> {
+            executions.incrementAndGet();
+            firstStarted.countDown();
+            try {
+                releaseFirst.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return cartResponse;
+        }));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        Future<CartResponse> duplicate = executorService.submit(() -> idempotencyStore.execute("createCart", "in-flight", createCartRequest, () -> {
+            executions.incrementAndGet();
+            return new CartResponse();
+        }));
+        Thread.sleep(100);
+        assertFalse(duplicate.isDone());
+
+        releaseFirst.countDown();
+
+        assertSame(cartResponse, first.get(5, TimeUnit.SECONDS));
+        assertSame(cartResponse, duplicate.get(5, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+        executorService.shutdown();
+    }
+
+    @Test
+    void failedExecutionShouldLeaveKeyFreeForRetry() {
+        CreateCartRequest createCartRequest = CreateCartRequest.builder().build();
+
+        assertThrows(IllegalArgumentException.class, () -> idempotencyStore.execute("createCart", "failed", createCartRequest, () -> {
+            throw new IllegalArgumentException("Product quantity must be bigger than zero");
+        }));
+
+        CartResponse cartResponse = idempotencyStore.execute("createCart", "failed", createCartRequest, CartResponse::new);
+        assertNotNull(cartResponse);
+    }
+}
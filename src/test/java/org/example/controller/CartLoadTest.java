@@ -0,0 +1,139 @@
+package org.example.controller;
+
+import org.example.Main;
+import org.example.config.VirtualThreadConfig;
+import org.example.entity.Cart;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateProductRequest;
+import org.example.service.CartService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Runs the same CartService code behind Tomcat's platform thread pool and on virtual threads, and checks that
+// virtual threads keep up with the saturated platform pool. Needs Java 21+, only runs in the load-tests profile
+@Tag("load")
+class CartLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(CartLoadTest.class);
+
+    // twice as many clients as Tomcat worker threads, so the platform pool is saturated
+    final static int tomcat_threads = 32;
+
+    final static int clients = 2 * tomcat_threads;
+
+    final static int requests_per_client = 10;
+
+    final static int number_of_carts = 20;
+
+    // margin for run to run noise of a short load on a shared machine
+    final static double min_virtual_to_platform_throughput = 0.8;
+
+    @Test
+    void virtualThreadsShouldKeepUpWithSaturatedPlatformPool() throws Exception {
+        assumeTrue(VirtualThreadConfig.virtualThreadsSupported(), "virtual threads need Java 21 or newer");
+        LoadResult platform = runLoad("platform");
+        log.info("platform threads: {}", platform);
+        LoadResult virtual = runLoad("virtual");
+        log.info("virtual threads: {}", virtual);
+
+        assertTrue(virtual.requestsPerSecond() >= min_virtual_to_platform_throughput * platform.requestsPerSecond(),
+                "virtual threads: " + virtual + ", platform threads: " + platform);
+    }
+
+    private LoadResult runLoad(String mode) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Main.class).run(
+                "--cart.threads.mode=" + mode,
+                "--server.port=0",
+                "--server.tomcat.threads.max=" + tomcat_threads,
+                "--spring.datasource.hikari.maximum-pool-size=10",
+                // own database, the shared one belongs to the cached test contexts
+                "--spring.datasource.url=jdbc:h2:mem:cartload-" + mode + ";MODE=MySQL;DB_CLOSE_DELAY=-1")) {
+            int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            List<Long> productIds = createCarts(context.getBean(CartService.class));
+            runRequests(port, productIds);
+            return runRequests(port, productIds);
+        }
+    }
+
+    private List<Long> createCarts(CartService cartService) {
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < number_of_carts; i++) {
+            CreateProductRequest createProductRequest = new CreateProductRequest();
+            createProductRequest.setProductName("Product " + i);
+            createProductRequest.setProductPrice(150);
+            createProductRequest.setProductQuantity(1);
+            Cart cart = cartService.createCart(CreateCartRequest.builder().addedProducts(List.of(createProductRequest)).build());
+            productIds.add(cart.getAddedProducts().get(0).getId());
+        }
+        return productIds;
+    }
+
+    // Every client sends four page reads for each single product add
+    private LoadResult runRequests(int port, List<Long> productIds) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        ExecutorService clientThreads = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int client = 0; client < clients; client++) {
+                int clientNumber = client;
+                futures.add(clientThreads.submit(() -> {
+                    long[] latencies = new long[requests_per_client];
+                    for (int i = 0; i < requests_per_client; i++) {
+                        HttpRequest request = i % 5 == 4
+                                ? HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/cart/addSingleProduct/"
+                                        + productIds.get((clientNumber + i) % productIds.size())))
+                                        .PUT(HttpRequest.BodyPublishers.noBody()).build()
+                                : HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/cart/getCarts?size=10")).GET().build();
+                        long requestStart = System.nanoTime();
+                        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                        latencies[i] = System.nanoTime() - requestStart;
+                        assertEquals(200, response.statusCode(), response.body());
+                    }
+                    return latencies;
+                }));
+            }
+            long[] latencies = new long[clients * requests_per_client];
+            for (int client = 0; client < clients; client++) {
+                System.arraycopy(futures.get(client).get(), 0, latencies, client * requests_per_client, requests_per_client);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(latencies);
+            return new LoadResult(latencies.length / seconds, percentileMillis(latencies, 0.5), percentileMillis(latencies, 0.99));
+        } finally {
+            clientThreads.shutdownNow();
+        }
+    }
+
+    private static double percentileMillis(long[] sortedLatencies, double percentile) {
+        return sortedLatencies[(int) Math.ceil(percentile * sortedLatencies.length) - 1] / 1e6;
+    }
+
+    private record LoadResult(double requestsPerSecond, double p50Millis, double p99Millis) {
+
+        @Override
+        public String toString() {
+            return String.format("%.0f requests per second, p50 %.2f ms, p99 %.2f ms", requestsPerSecond, p50Millis, p99Millis);
+        }
+    }
+}
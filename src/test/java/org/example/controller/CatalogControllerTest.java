@@ -0,0 +1,93 @@
+package org.example.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.entity.CatalogItem;
+import org.example.request.CreateCatalogItemRequest;
+import org.example.response.CatalogItemResponse;
+import org.example.service.InventoryService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CatalogControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    InventoryService inventoryService;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    final static long catalog_item_id = 7L;
+
+    private CreateCatalogItemRequest getItemRequest(String sku, int stock) {
+        CreateCatalogItemRequest createCatalogItemRequest = new CreateCatalogItemRequest();
+        createCatalogItemRequest.setSku(sku);
+        createCatalogItemRequest.setItemName("Pear");
+        createCatalogItemRequest.setItemPrice(80);
+        createCatalogItemRequest.setInitialStock(stock);
+        return createCatalogItemRequest;
+    }
+
+    private CatalogItemResponse getItemResponse(long availableStock) {
+        CatalogItem catalogItem = new CatalogItem(getItemRequest("PEAR-1", 0));
+        catalogItem.setId(catalog_item_id);
+        return new CatalogItemResponse(catalogItem, availableStock);
+    }
+
+    @Test
+    void shouldCreateItem() throws Exception {
+        Mockito.when(inventoryService.createItem(ArgumentMatchers.any())).thenReturn(getItemResponse(20));
+
+        MvcResult mvcResult = mockMvc.perform(post("/api/catalog/createItem")
+                        .content(objectMapper.writeValueAsBytes(getItemRequest("PEAR-1", 20)))
+                        .contentType("application/json"))
+                .andExpect(status().isOk()).andReturn();
+        var item = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), CatalogItemResponse.class);
+
+        assertEquals(catalog_item_id, item.getId());
+        assertEquals("PEAR-1", item.getSku());
+        assertEquals(20, item.getAvailableStock());
+    }
+
+    @Test
+    void createItemWithoutSkuShouldBeRejected() throws Exception {
+        mockMvc.perform(post("/api/catalog/createItem")
+                        .content(objectMapper.writeValueAsBytes(getItemRequest("", 20)))
+                        .contentType("application/json"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldGetItemWithAvailableStock() throws Exception {
+        Mockito.when(inventoryService.getItem(catalog_item_id)).thenReturn(getItemResponse(3));
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/catalog/getItemById/" + catalog_item_id)).andReturn();
+        var item = objectMapper.readValue(mvcResult.getResponse().getContentAsString(), CatalogItemResponse.class);
+
+        assertEquals(3, item.getAvailableStock());
+    }
+
+    @Test
+    void shouldRestockItem() throws Exception {
+        Mockito.when(inventoryService.restock(catalog_item_id, 5)).thenReturn("Catalog item restocked successfully");
+
+        MvcResult mvcResult = mockMvc.perform(put("/api/catalog/restock/" + catalog_item_id + "?quantity=5"))
+                .andExpect(status().isOk()).andReturn();
+
+        assertEquals("Catalog item restocked successfully", mvcResult.getResponse().getContentAsString());
+    }
+}
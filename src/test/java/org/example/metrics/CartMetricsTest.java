@@ -0,0 +1,70 @@
+package org.example.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateProductRequest;
+import org.example.response.CartResponse;
+import org.example.service.CartService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class CartMetricsTest {
+
+    final static long made_up_id = 9999;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    CartService cartService;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void prometheusEndpointShouldExposeCartMetrics() throws Exception {
+        CreateProductRequest createProductRequest = new CreateProductRequest();
+        createProductRequest.setProductName("Apple");
+        createProductRequest.setProductPrice(125);
+        createProductRequest.setProductQuantity(1);
+        String json = mockMvc.perform(post("/api/cart/createCart")
+                        .content(objectMapper.writeValueAsBytes(CreateCartRequest.builder()
+                                .addedProducts(List.of(createProductRequest))
+                                .build()))
+                        .contentType("application/json"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        long cartId = objectMapper.readValue(json, CartResponse.class).getId();
+        mockMvc.perform(get("/api/cart/getSingleCartById/" + cartId)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/cart/getSingleCartById/" + cartId)).andExpect(status().isOk());
+        assertThrows(Exception.class, () -> mockMvc.perform(get("/api/cart/getSingleCartById/" + made_up_id)));
+
+        String metrics = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        assertTrue(metrics.contains("http_server_requests_seconds_bucket{"));
+        assertTrue(metrics.contains("uri=\"/api/cart/getSingleCartById/{cart_id}\""));
+        assertTrue(metrics.contains("spring_data_repository_invocations_seconds_bucket{"));
+        assertTrue(metrics.contains("method=\"findWithProductsById\""));
+        assertTrue(metrics.contains("hikaricp_connections_active"));
+        assertTrue(metrics.contains("cart_sql_statements_total{type=\"insert\""));
+        // Without If-None-Match the endpoint loads the cart directly, that is where a missing cart fails
+        assertTrue(metrics.contains("cart_failures_total{operation=\"getCartResponseById\",reason=\"No cart with given ID exists\""));
+        assertTrue(metrics.contains("cart_cache_requests_total{result=\"hit\""));
+
+        cartService.deleteCart(cartId);
+    }
+}
@@ -0,0 +1,233 @@
+package org.example.reactive;
+
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateProductRequest;
+import org.example.request.UpdateCartRequest;
+import org.example.response.CartResponse;
+import org.example.service.IdempotencyStore;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.main.web-application-type=reactive")
+class ReactiveCartControllerTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    // The reactive application runs no migrations, its database of spring.r2dbc.url gets the ones of the servlet application
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure().dataSource("jdbc:h2:mem:cartreactive;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "")
+                .locations("classpath:db/migration/h2").load().migrate();
+    }
+
+    private CreateProductRequest getProduct(String name, long price, int quantity) {
+        CreateProductRequest createProductRequest = new CreateProductRequest();
+        createProductRequest.setProductName(name);
+        createProductRequest.setProductPrice(price);
+        createProductRequest.setProductQuantity(quantity);
+        return createProductRequest;
+    }
+
+    private CartResponse createCart(CreateProductRequest... products) {
+        return webTestClient.post().uri("/api/cart/createCart")
+                .bodyValue(CreateCartRequest.builder().addedProducts(List.of(products)).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CartResponse.class).returnResult().getResponseBody();
+    }
+
+    private CartResponse getCart(long id) {
+        return webTestClient.get().uri("/api/cart/getSingleCartById/{id}", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CartResponse.class).returnResult().getResponseBody();
+    }
+
+    private String delete(String path, long id) {
+        return webTestClient.delete().uri("/api/cart/" + path + "/{id}", id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+    }
+
+    @Test
+    void createdCartShouldBeReadBackWithItsProductsAndTotal() {
+        CartResponse createdCart = createCart(getProduct("Apple", 125, 1), getProduct("Orange", 250, 2));
+
+        CartResponse cartResponse = getCart(createdCart.getId());
+
+        assertEquals(625, cartResponse.getTotalPrice());
+        assertEquals(createdCart.getAddedProducts(), cartResponse.getAddedProducts());
+        assertEquals(createdCart.getAddedProducts().get(0).getId(), cartResponse.getAddedProducts().get(0).getId());
+    }
+
+    @Test
+    void retriedCreateCartShouldReturnFirstCart() {
+        CreateCartRequest createCartRequest = CreateCartRequest.builder().addedProducts(List.of(getProduct("Apple", 125, 1))).build();
+
+        List<CartResponse> cartResponses = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            cartResponses.add(webTestClient.post().uri("/api/cart/createCart")
+                    .header(IdempotencyStore.HEADER, "reactive-retry")
+                    .bodyValue(createCartRequest)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(CartResponse.class).returnResult().getResponseBody());
+        }
+
+        assertEquals(cartResponses.get(0).getId(), cartResponses.get(1).getId());
+        assertEquals(cartResponses.get(0).getAddedProducts(), cartResponses.get(1).getAddedProducts());
+    }
+
+    @Test
+    void getSingleCartByIdShouldFailForMissingCart() {
+        webTestClient.get().uri("/api/cart/getSingleCartById/{id}", 999_999L)
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    // More products than one id block, the generator has to fetch the next sequence value
+    @Test
+    void createCartShouldGiveEveryProductItsOwnId() {
+        List<CreateProductRequest> products = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            products.add(getProduct("Product " + i, 100, 1));
+        }
+
+        CartResponse cartResponse = createCart(products.toArray(CreateProductRequest[]::new));
+
+        assertEquals(120, cartResponse.getAddedProducts().stream().map(product -> product.getId()).distinct().count());
+        assertEquals(120, getCart(cartResponse.getId()).getAddedProducts().size());
+    }
+
+    @Test
+    void addProductShouldReturnNewProductsAndNewTotal() {
+        CartResponse createdCart = createCart(getProduct("Apple", 125, 1));
+
+        CartResponse cartResponse = webTestClient.put().uri("/api/cart/addProduct")
+                .bodyValue(UpdateCartRequest.builder().id(createdCart.getId()).addedProducts(List.of(getProduct("Banana", 250, 1))).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CartResponse.class).returnResult().getResponseBody();
+
+        assertEquals(375, cartResponse.getTotalPrice());
+        assertEquals(1, cartResponse.getAddedProducts().size());
+        assertEquals("Banana", cartResponse.getAddedProducts().get(0).getProductName());
+        assertEquals(2, getCart(createdCart.getId()).getAddedProducts().size());
+    }
+
+    @Test
+    void addProductShouldAddUnitsToExistingLineInsteadOfInsertingRow() {
+        CartResponse createdCart = createCart(getProduct("Apple", 125, 1), getProduct("Apple", 125, 2));
+        assertEquals(1, createdCart.getAddedProducts().size());
+        long appleId = createdCart.getAddedProducts().get(0).getId();
+
+        CartResponse cartResponse = webTestClient.put().uri("/api/cart/addProduct")
+                .bodyValue(UpdateCartRequest.builder().id(createdCart.getId())
+                        .addedProducts(List.of(getProduct("Apple", 125, 2), getProduct("Apple", 150, 1))).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CartResponse.class).returnResult().getResponseBody();
+
+        assertEquals(775, cartResponse.getTotalPrice());
+        assertEquals(appleId, cartResponse.getAddedProducts().get(0).getId());
+        assertEquals(5, cartResponse.getAddedProducts().get(0).getProductQuantity());
+        CartResponse storedCart = getCart(createdCart.getId());
+        assertEquals(2, storedCart.getAddedProducts().size());
+        assertEquals(5, storedCart.getAddedProducts().get(0).getProductQuantity());
+        assertEquals(1, storedCart.getAddedProducts().get(1).getProductQuantity());
+        assertEquals(775, storedCart.getTotalPrice());
+    }
+
+    @Test
+    void addProductWithZeroQuantityShouldFailAndLeaveCartUnchanged() {
+        CartResponse createdCart = createCart(getProduct("Apple", 125, 1));
+
+        webTestClient.put().uri("/api/cart/addProduct")
+                .bodyValue(UpdateCartRequest.builder().id(createdCart.getId()).addedProducts(List.of(getProduct("Banana", 250, 0))).build())
+                .exchange()
+                .expectStatus().is5xxServerError();
+
+        CartResponse cartResponse = getCart(createdCart.getId());
+        assertEquals(125, cartResponse.getTotalPrice());
+        assertEquals(1, cartResponse.getAddedProducts().size());
+    }
+
+    @Test
+    void removeSingleProductShouldDecrementQuantityThenRemoveLastOne() {
+        CartResponse createdCart = createCart(getProduct("Orange", 250, 2));
+        long productId = createdCart.getAddedProducts().get(0).getId();
+
+        assertEquals("Single product removed from cart successfully", delete("removeByIdSingleProductFromCart", productId));
+        CartResponse cartResponse = getCart(createdCart.getId());
+        assertEquals(250, cartResponse.getTotalPrice());
+        assertEquals(1, cartResponse.getAddedProducts().get(0).getProductQuantity());
+
+        assertEquals("Product removed from cart successfully", delete("removeByIdSingleProductFromCart", productId));
+        cartResponse = getCart(createdCart.getId());
+        assertEquals(0, cartResponse.getTotalPrice());
+        assertTrue(cartResponse.getAddedProducts().isEmpty());
+    }
+
+    @Test
+    void removeProductShouldSubtractItsLineTotal() {
+        CartResponse createdCart = createCart(getProduct("Apple", 125, 1), getProduct("Orange", 250, 2));
+
+        assertEquals("Product removed from cart successfully", delete("removeByIdProductFromCart", createdCart.getAddedProducts().get(1).getId()));
+
+        CartResponse cartResponse = getCart(createdCart.getId());
+        assertEquals(125, cartResponse.getTotalPrice());
+        assertEquals(1, cartResponse.getAddedProducts().size());
+    }
+
+    // Stock is reserved on the servlet side only
+    @Test
+    void createCartWithCatalogLineShouldFail() {
+        CreateProductRequest catalogLine = getProduct("Apple", 125, 1);
+        catalogLine.setCatalogItemId(1L);
+
+        webTestClient.post().uri("/api/cart/createCart")
+                .bodyValue(CreateCartRequest.builder().addedProducts(List.of(catalogLine)).build())
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @Test
+    void removeProductShouldFailForMissingProduct() {
+        webTestClient.delete().uri("/api/cart/removeByIdProductFromCart/{id}", 999_999L)
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @Test
+    void clearCartShouldRemoveProductsAndZeroTotal() {
+        CartResponse createdCart = createCart(getProduct("Apple", 125, 1), getProduct("Orange", 250, 2));
+
+        assertEquals("2 products have been removed", delete("clearCart", createdCart.getId()));
+
+        CartResponse cartResponse = getCart(createdCart.getId());
+        assertEquals(0, cartResponse.getTotalPrice());
+        assertTrue(cartResponse.getAddedProducts().isEmpty());
+    }
+
+    @Test
+    void deleteCartShouldRemoveCartAndProducts() {
+        CartResponse createdCart = createCart(getProduct("Apple", 125, 1), getProduct("Orange", 250, 2));
+
+        assertEquals("Cart with 2 products has been deleted successfully", delete("deleteCart", createdCart.getId()));
+
+        webTestClient.get().uri("/api/cart/getSingleCartById/{id}", createdCart.getId())
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the migrations up to V6 on their own database, fills it the way addProduct used to, then applies V7
+class LineCompactionMigrationTest {
+
+    @Test
+    void duplicateLinesShouldBeMergedIntoTheOldestOne() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:cartcompaction;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/h2").target("6").load().migrate();
+        jdbcTemplate.update("INSERT INTO cart (cart_id, total_price, version, last_modified) VALUES (1, 800, 0, CURRENT_TIMESTAMP)");
+        jdbcTemplate.update("INSERT INTO catalog_item (catalog_item_id, sku, item_name, item_price) VALUES (1, 'PEAR-1', 'Pear', 100)");
+        // Apple three times, a cheaper Apple, Pear from the catalog twice
+        jdbcTemplate.update("INSERT INTO product (product_id, product_name, product_price, product_quantity, version, cart_id, catalog_item_id) VALUES " +
+                "(10, 'Apple', 125, 1, 0, 1, NULL), (11, 'Apple', 125, 2, 0, 1, NULL), (12, 'Apple', 125, 1, 0, 1, NULL), " +
+                "(13, 'Apple', 100, 1, 0, 1, NULL), (14, 'Pear', 100, 1, 0, 1, 1), (15, 'Pear', 100, 1, 0, 1, 1)");
+        jdbcTemplate.update("INSERT INTO stock_ledger (stock_ledger_id, catalog_item_id, delta, reason, product_id, created_at) VALUES " +
+                "(1, 1, 10, 'RESTOCK', NULL, CURRENT_TIMESTAMP), (2, 1, -1, 'RESERVE', 14, CURRENT_TIMESTAMP), (3, 1, -1, 'RESERVE', 15, CURRENT_TIMESTAMP)");
+
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/h2").load().migrate();
+
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product WHERE cart_id = 1", Integer.class));
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT product_quantity FROM product WHERE product_id = 10", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT product_quantity FROM product WHERE product_id = 13", Integer.class));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT product_quantity FROM product WHERE product_id = 14", Integer.class));
+        assertEquals(800, jdbcTemplate.queryForObject("SELECT SUM(product_price * product_quantity) FROM product WHERE cart_id = 1", Long.class));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_ledger WHERE product_id = 14", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT version FROM cart WHERE cart_id = 1", Long.class));
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.repository;
+
+import org.example.entity.Cart;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateProductRequest;
+import org.example.service.CartService;
+import org.example.service.SqlStatementCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs on a database built by the migrations instead of Hibernate, which also validates the entities against them.
+// Every statement a hot repository method issues is explained, none of them may scan a whole table
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cartplans;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.flyway.enabled=true",
+        "spring.flyway.locations=classpath:db/migration/{vendor}",
+        "spring.jpa.hibernate.ddl-auto=validate"})
+class QueryPlanTest {
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    StockLedgerRepository stockLedgerRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    private Cart createCart() {
+        CreateProductRequest apple = new CreateProductRequest();
+        apple.setProductName("Apple");
+        apple.setProductPrice(125);
+        apple.setProductQuantity(2);
+        return cartService.createCart(CreateCartRequest.builder().addedProducts(List.of(apple)).build());
+    }
+
+    // Plans of the statements the action issued, sequence calls left out. Prepared without binding
+    // the parameters, the plan doesn't depend on their values
+    private List<String> plansOf(Runnable action) {
+        SqlStatementCounter.clear();
+        transactionTemplate.executeWithoutResult(status -> action.run());
+        List<String> statements = SqlStatementCounter.getStatements().stream()
+                .filter(sql -> !sql.contains("_seq"))
+                .toList();
+        assertFalse(statements.isEmpty());
+        return statements.stream()
+                .map(sql -> jdbcTemplate.query("EXPLAIN " + sql, (PreparedStatementSetter) null, resultSet -> {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }))
+                .toList();
+    }
+
+    private void assertNoTableScan(Runnable action) {
+        for (String plan : plansOf(action)) {
+            assertFalse(plan.contains("tableScan"), plan);
+        }
+    }
+
+    @Test
+    void cartQueriesShouldUseIndexes() {
+        Cart cart = createCart();
+        long id = cart.getId();
+
+        assertNoTableScan(() -> cartRepository.findWithProductsById(id));
+        assertNoTableScan(() -> cartRepository.findVersionById(id));
+        assertNoTableScan(() -> cartRepository.findIdsAfter(id - 1, PageRequest.ofSize(10)));
+        assertNoTableScan(() -> cartRepository.findByIdInOrderByIdAsc(List.of(id)));
+        assertNoTableScan(() -> cartRepository.findSummariesAfter(id - 1, 0, Long.MAX_VALUE, PageRequest.ofSize(10)));
+        assertNoTableScan(() -> cartRepository.addToTotalPrice(id, 0, Instant.now()));
+        assertNoTableScan(() -> cartRepository.clearTotalPrice(id, 0, Instant.now()));
+        assertNoTableScan(() -> cartRepository.lockIdsModifiedBefore(Instant.EPOCH, 10));
+        assertNoTableScan(() -> cartRepository.deleteByIdIn(List.of(-1L)));
+    }
+
+    // Lazily loaded products are fetched by their cart too
+    @Test
+    void productsShouldBeFetchedByCartIndex() {
+        long id = createCart().getId();
+
+        assertNoTableScan(() -> cartRepository.findById(id).orElseThrow().getAddedProducts().size());
+        assertNoTableScan(() -> cartRepository.findAllById(List.of(id)).forEach(cart -> cart.getAddedProducts().size()));
+    }
+
+    @Test
+    void productQueriesShouldUseIndexes() {
+        Cart cart = createCart();
+        long cartId = cart.getId();
+        long productId = cart.getAddedProducts().get(0).getId();
+
+        assertNoTableScan(() -> productRepository.findCatalogLinesByCartIdIn(List.of(cartId)));
+        assertNoTableScan(() -> productRepository.findWithCartByIdIn(List.of(productId)));
+        assertNoTableScan(() -> productRepository.addToQuantity(productId, 0));
+        assertNoTableScan(() -> productRepository.decrementQuantityAboveOne(productId));
+        assertNoTableScan(() -> productRepository.deleteProductsByCartIdIn(List.of(-1L)));
+        assertNoTableScan(() -> productRepository.deleteProductsByCartId(-1L));
+        assertNoTableScan(() -> stockLedgerRepository.sumDeltas(-1L));
+    }
+
+    @Test
+    void deletingCartShouldCascadeToProducts() {
+        Cart cart = createCart();
+
+        jdbcTemplate.update("DELETE FROM cart WHERE cart_id = ?", cart.getId());
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product WHERE cart_id = ?", Integer.class, cart.getId()));
+        assertFalse(productRepository.existsById(cart.getAddedProducts().get(0).getId()));
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.entity.Cart;
+import org.example.repository.CartRepository;
+import org.example.repository.ProductRepository;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateCatalogItemRequest;
+import org.example.request.CreateProductRequest;
+import org.example.response.CatalogItemResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The interval is long enough that only explicit runs purge
+@SpringBootTest(properties = {
+        "cart.purge.enabled=true",
+        "cart.purge.ttl=P1D",
+        "cart.purge.interval=PT1H",
+        "cart.purge.chunk-size=2",
+        "cart.purge.pause=PT0S"})
+class AbandonedCartPurgerTest {
+
+    @Autowired
+    AbandonedCartPurger abandonedCartPurger;
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    InventoryService inventoryService;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    RecentCartWrites recentCartWrites;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private static CreateProductRequest getProduct(String name, long price, int quantity) {
+        CreateProductRequest createProductRequest = new CreateProductRequest();
+        createProductRequest.setProductName(name);
+        createProductRequest.setProductPrice(price);
+        createProductRequest.setProductQuantity(quantity);
+        return createProductRequest;
+    }
+
+    private Cart createCart() {
+        return cartService.createCart(CreateCartRequest.builder()
+                .addedProducts(List.of(getProduct("Apple", 125, 1), getProduct("Orange", 250, 2)))
+                .build());
+    }
+
+    // Makes the cart look untouched for two days, longer than the ttl
+    private void abandon(Cart cart) {
+        jdbcTemplate.update("UPDATE cart SET last_modified = ? WHERE cart_id = ?",
+                Timestamp.from(Instant.now().minus(Duration.ofDays(2))), cart.getId());
+    }
+
+    private double purgedRows(String table) {
+        return meterRegistry.get("cart.purge.rows").tag("table", table).counter().count();
+    }
+
+    @Test
+    void expiredCartsShouldBeDeletedInChunksWithTheirProducts() {
+        List<Cart> expiredCarts = List.of(createCart(), createCart(), createCart());
+        Cart freshCart = createCart();
+        expiredCarts.forEach(this::abandon);
+
+        AbandonedCartPurger.PurgeResult purgeResult = abandonedCartPurger.purgeExpiredCarts();
+
+        assertEquals(3, purgeResult.carts());
+        assertEquals(6, purgeResult.products());
+        assertEquals(2, purgeResult.chunks());
+        for (Cart cart : expiredCarts) {
+            assertFalse(cartRepository.existsById(cart.getId()));
+            cart.getAddedProducts().forEach(product -> assertFalse(productRepository.existsById(product.getId())));
+        }
+        assertEquals(2, cartService.getSingleCartById(freshCart.getId()).getAddedProducts().size());
+        assertEquals(0, abandonedCartPurger.purgeExpiredCarts().carts());
+    }
+
+    @Test
+    void changedCartShouldNotBePurged() {
+        Cart cart = createCart();
+        abandon(cart);
+
+        cartService.addSingleProduct(cart.getAddedProducts().get(0).getId());
+
+        assertEquals(0, abandonedCartPurger.purgeExpiredCarts().carts());
+        assertEquals(750, cartService.getSingleCartById(cart.getId()).getTotalPrice());
+    }
+
+    // Purged carts go through the same invalidation as any other write: cache, version lookups and read routing
+    @Test
+    void purgedCartShouldBeDroppedFromCache() {
+        Cart cart = createCart();
+        assertEquals(625, cartService.getCartResponseById(cart.getId()).getTotalPrice());
+        abandon(cart);
+
+        assertEquals(1, abandonedCartPurger.purgeExpiredCarts().carts());
+
+        assertTrue(recentCartWrites.contains(cart.getId()));
+        assertThrows(IllegalArgumentException.class, () -> cartService.getSingleCartById(cart.getId()));
+        assertThrows(IllegalArgumentException.class, () -> cartService.getCartVersion(cart.getId()));
+        assertThrows(IllegalArgumentException.class, () -> cartService.getCartResponseById(cart.getId()));
+    }
+
+    @Test
+    void purgedCatalogLineShouldReturnItsStock() {
+        CreateCatalogItemRequest createCatalogItemRequest = new CreateCatalogItemRequest();
+        createCatalogItemRequest.setSku("SKU-PURGE");
+        createCatalogItemRequest.setItemName("Catalog SKU-PURGE");
+        createCatalogItemRequest.setItemPrice(300);
+        createCatalogItemRequest.setInitialStock(10);
+        CatalogItemResponse item = inventoryService.createItem(createCatalogItemRequest);
+        CreateProductRequest catalogLine = new CreateProductRequest();
+        catalogLine.setCatalogItemId(item.getId());
+        catalogLine.setProductQuantity(3);
+        Cart cart = cartService.createCart(CreateCartRequest.builder().addedProducts(List.of(catalogLine)).build());
+        assertEquals(7, inventoryService.getItem(item.getId()).getAvailableStock());
+        abandon(cart);
+
+        abandonedCartPurger.purgeExpiredCarts();
+
+        assertEquals(10, inventoryService.getItem(item.getId()).getAvailableStock());
+    }
+
+    @Test
+    void purgeShouldReportReclaimedRows() {
+        double cartsBefore = purgedRows("cart");
+        double productsBefore = purgedRows("product");
+        Cart cart = createCart();
+        abandon(cart);
+
+        abandonedCartPurger.purgeExpiredCarts();
+
+        assertEquals(cartsBefore + 1, purgedRows("cart"));
+        assertEquals(productsBefore + 2, purgedRows("product"));
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.service;
+
+import org.example.entity.Cart;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateProductRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class CartBatchInsertTest {
+
+    final static int number_of_lines = 50;
+
+    @Autowired
+    CartService cartService;
+
+    private CreateCartRequest getCartWithLines(int numberOfLines) {
+        List<CreateProductRequest> addedProducts = new ArrayList<>();
+        for (int i = 0; i < numberOfLines; i++) {
+            CreateProductRequest createProductRequest = new CreateProductRequest();
+            createProductRequest.setProductName("Product " + i);
+            createProductRequest.setProductPrice(150);
+            createProductRequest.setProductQuantity(2);
+            addedProducts.add(createProductRequest);
+        }
+        return CreateCartRequest.builder().addedProducts(addedProducts).build();
+    }
+
+    @Test
+    void createCartShouldInsertAllLinesInOneBatch() {
+        SqlStatementCounter.clear();
+        Cart cart = cartService.createCart(getCartWithLines(number_of_lines));
+        // one insert for the cart, one batched insert for the 50 products
+        assertEquals(2, SqlStatementCounter.count("insert"));
+        cartService.deleteCart(cart.getId());
+    }
+}
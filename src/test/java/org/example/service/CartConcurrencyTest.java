@@ -0,0 +1,143 @@
+package org.example.service;
+
+import org.example.entity.Cart;
+import org.example.entity.Product;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateProductRequest;
+import org.example.request.UpdateCartRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Hammers one cart from many threads and checks the total still matches its line items
+@SpringBootTest
+class CartConcurrencyTest {
+
+    final static int number_of_threads = 8;
+
+    final static int operations_per_thread = 40;
+
+    @Autowired
+    CartService cartService;
+
+    private CreateProductRequest getProduct(String name, long price, int quantity) {
+        CreateProductRequest createProductRequest = new CreateProductRequest();
+        createProductRequest.setProductName(name);
+        createProductRequest.setProductPrice(price);
+        createProductRequest.setProductQuantity(quantity);
+        return createProductRequest;
+    }
+
+    private List<CreateProductRequest> getProducts() {
+        List<CreateProductRequest> addedProducts = new ArrayList<>();
+        addedProducts.add(getProduct("Apple", 125, 2));
+        addedProducts.add(getProduct("Orange", 250, 3));
+        addedProducts.add(getProduct("Banana", 75, 1));
+        return addedProducts;
+    }
+
+    @Test
+    void concurrentEditsShouldKeepTotalEqualToSumOfLineItems() throws Exception {
+        Cart cart = cartService.createCart(CreateCartRequest.builder().addedProducts(getProducts()).build());
+        long cartId = cart.getId();
+        List<Long> productIds = new CopyOnWriteArrayList<>();
+        cart.getAddedProducts().forEach(product -> productIds.add(product.getId()));
+        AtomicInteger succeededOperations = new AtomicInteger();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(number_of_threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < number_of_threads; i++) {
+            futures.add(executorService.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int j = 0; j < operations_per_thread; j++) {
+                    long productId = productIds.get(random.nextInt(productIds.size()));
+                    try {
+                        switch (random.nextInt(4)) {
+                            case 0 -> cartService.addSingleProduct(productId);
+                            case 1 -> cartService.deleteSingleProductFromCart(productId);
+                            case 2 -> cartService.deleteProductFromCart(productId);
+                            default -> cartService.addProduct(UpdateCartRequest.builder()
+                                            .id(cartId)
+                                            .addedProducts(List.of(getProduct("Cherry", 50, 2)))
+                                            .build())
+                                    .getAddedProducts().forEach(product -> productIds.add(product.getId()));
+                        }
+                        succeededOperations.incrementAndGet();
+                    } catch (IllegalArgumentException | OptimisticLockingFailureException e) {
+                        // the product was removed by another thread or every retry lost, nothing was written
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        assertTrue(succeededOperations.get() > 0);
+        assertTotalEqualsSumOfLineItems(cartId);
+        cartService.deleteCart(cartId);
+    }
+
+    // A line added while the cart is cleared is either cleared with it or stays counted in the total
+    @Test
+    void concurrentAddsAndClearsShouldKeepTotalEqualToSumOfLineItems() throws Exception {
+        long cartId = cartService.createCart(CreateCartRequest.builder().addedProducts(getProducts()).build()).getId();
+        AtomicInteger succeededClears = new AtomicInteger();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(number_of_threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < number_of_threads; i++) {
+            boolean clearing = i % 2 == 0;
+            futures.add(executorService.submit(() -> {
+                for (int j = 0; j < operations_per_thread; j++) {
+                    try {
+                        if (clearing) {
+                            cartService.clearCart(cartId);
+                            succeededClears.incrementAndGet();
+                        } else {
+                            List<Product> addedProducts = cartService.addProduct(UpdateCartRequest.builder()
+                                    .id(cartId)
+                                    .addedProducts(getProducts())
+                                    .build()).getAddedProducts();
+                            cartService.addSingleProduct(addedProducts.get(0).getId());
+                        }
+                    } catch (IllegalArgumentException | OptimisticLockingFailureException e) {
+                        // the line was cleared by another thread or every retry lost, nothing was written
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        assertTrue(succeededClears.get() > 0);
+        assertTotalEqualsSumOfLineItems(cartId);
+        cartService.deleteCart(cartId);
+    }
+
+    private void assertTotalEqualsSumOfLineItems(long cartId) {
+        Cart updatedCart = cartService.getSingleCartById(cartId);
+        long sumOfLineItems = 0L;
+        for (Product product : updatedCart.getAddedProducts()) {
+            assertTrue(product.getProductQuantity() >= 1);
+            sumOfLineItems += product.getProductPrice() * product.getProductQuantity();
+        }
+        assertEquals(sumOfLineItems, updatedCart.getTotalPrice());
+    }
+}
@@ -0,0 +1,235 @@
+package org.example.service;
+
+import org.example.controller.CartController;
+import org.example.entity.Cart;
+import org.example.request.CartOperationRequest;
+import org.example.request.CartOperationType;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateProductRequest;
+import org.example.request.UpdateCartRequest;
+import org.example.response.CartResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Counts the SQL statements each read path issues, so N+1 loading can't creep back in
+@SpringBootTest
+class CartQueryCountTest {
+
+    final static int number_of_carts = 5;
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    CartController cartController;
+
+    List<Long> cartIds = new ArrayList<>();
+
+    @BeforeEach
+    void createCarts() {
+        for (int i = 0; i < number_of_carts; i++) {
+            cartIds.add(cartService.createCart(getCartWithTwoProducts()).getId());
+        }
+        SqlStatementCounter.clear();
+    }
+
+    @AfterEach
+    void deleteCarts() {
+        cartIds.forEach(cartService::deleteCart);
+    }
+
+    private CreateCartRequest getCartWithTwoProducts() {
+        List<CreateProductRequest> addedProducts = new ArrayList<>();
+        addedProducts.add(getProduct("Apple", 125, 1));
+        addedProducts.add(getProduct("Orange", 250, 2));
+        return CreateCartRequest.builder().addedProducts(addedProducts).build();
+    }
+
+    private CreateProductRequest getProduct(String name, long price, int quantity) {
+        CreateProductRequest createProductRequest = new CreateProductRequest();
+        createProductRequest.setProductName(name);
+        createProductRequest.setProductPrice(price);
+        createProductRequest.setProductQuantity(quantity);
+        return createProductRequest;
+    }
+
+    private long mapAndCountStatements(List<Cart> carts) {
+        carts.forEach(CartResponse::new);
+        return SqlStatementCounter.count();
+    }
+
+    @Test
+    void getAllCartsShouldUseOneQuery() {
+        assertEquals(1, mapAndCountStatements(cartService.getAllCarts()));
+    }
+
+    @Test
+    void getCartsAfterShouldUseTwoQueries() {
+        assertEquals(2, mapAndCountStatements(cartService.getCartsAfter(cartIds.get(0) - 1, number_of_carts)));
+    }
+
+    @Test
+    void getCartSummariesAfterShouldUseOneQuery() {
+        assertEquals(number_of_carts, cartService.getCartSummariesAfter(cartIds.get(0) - 1, 0, Long.MAX_VALUE, number_of_carts).size());
+        assertEquals(1, SqlStatementCounter.count());
+    }
+
+    @Test
+    void streamAllCartsShouldUseTwoQueriesPerChunk() {
+        cartService.streamAllCarts(CartResponse::new);
+        assertEquals(2, SqlStatementCounter.count());
+    }
+
+    @Test
+    void getSingleCartByIdShouldUseOneQuery() {
+        assertEquals(1, mapAndCountStatements(List.of(cartService.getSingleCartById(cartIds.get(0)))));
+    }
+
+    // Without If-None-Match there is nothing to compare, the cart is loaded without looking up its version first
+    @Test
+    void getSingleCartByIdWithoutIfNoneMatchShouldNotSelectVersion() {
+        ServletWebRequest webRequest = new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        assertEquals(HttpStatus.OK, cartController.getSingleCartById(cartIds.get(0), webRequest).getStatusCode());
+
+        assertEquals(1, SqlStatementCounter.count());
+        assertTrue(SqlStatementCounter.getStatements().stream().noneMatch(sql -> sql.matches("select \\w+\\.version from .*")));
+    }
+
+    @Test
+    void getCartVersionShouldUseOneQueryOrNoneWhenCached() {
+        cartService.getCartVersion(cartIds.get(0));
+        assertEquals(1, SqlStatementCounter.count());
+
+        cartService.getCartResponseById(cartIds.get(0));
+        SqlStatementCounter.clear();
+        cartService.getCartVersion(cartIds.get(0));
+        assertEquals(0, SqlStatementCounter.count());
+    }
+
+    // Mutations: quantities and totals are changed in place, one statement per changed row.
+    // Single clicks and removals read the product once, for its cart and catalog item and so a delete
+    // can be checked against its version. Free-form lines write nothing to the stock ledger
+
+    @Test
+    void addProductShouldInsertAndUpdateTotalInPlace() {
+        List<CreateProductRequest> addedProducts = new ArrayList<>();
+        addedProducts.add(getProduct("Banana", 250, 1));
+        UpdateCartRequest updateCartRequest = UpdateCartRequest.builder()
+                .id(cartIds.get(0))
+                .addedProducts(addedProducts)
+                .build();
+        cartService.addProduct(updateCartRequest);
+        // select cart, insert product, update total, refresh cart
+        assertEquals(4, SqlStatementCounter.count());
+    }
+
+    @Test
+    void addProductOfExistingLineShouldUpdateItInsteadOfInserting() {
+        UpdateCartRequest updateCartRequest = UpdateCartRequest.builder()
+                .id(cartIds.get(0))
+                .addedProducts(List.of(getProduct("Apple", 125, 2), getProduct("Orange", 250, 1)))
+                .build();
+        cartService.addProduct(updateCartRequest);
+        // select cart with products, update both products in one batch, update total, refresh cart
+        assertEquals(4, SqlStatementCounter.count());
+        assertEquals(0, SqlStatementCounter.count("insert"));
+    }
+
+    @Test
+    void addSingleProductShouldSelectOnceThenIssueTwoUpdates() {
+        cartService.addSingleProduct(getFirstProductId());
+        assertEquals(3, SqlStatementCounter.count());
+    }
+
+    @Test
+    void deleteProductFromCartShouldSelectOnceThenDeleteAndUpdateTotal() {
+        cartService.deleteProductFromCart(getFirstProductId());
+        assertEquals(3, SqlStatementCounter.count());
+    }
+
+    @Test
+    void deleteSingleProductFromCartShouldSelectOnceThenIssueTwoUpdates() {
+        cartService.deleteSingleProductFromCart(getSecondProductId());
+        assertEquals(3, SqlStatementCounter.count());
+    }
+
+    @Test
+    void deleteLastSingleProductFromCartShouldFallBackToDelete() {
+        cartService.deleteSingleProductFromCart(getFirstProductId());
+        // select product, delete product, update total
+        assertEquals(3, SqlStatementCounter.count());
+    }
+
+    @Test
+    void clearCartShouldReadOnceAndWriteInOneStatementEach() {
+        assertEquals(2, cartService.clearCart(cartIds.get(0)));
+        // select cart with products, delete products, zero total at the read version
+        assertEquals(3, SqlStatementCounter.count());
+    }
+
+    @Test
+    void deleteCartShouldSelectCartOnce() {
+        cartService.deleteCart(cartIds.remove(0));
+        assertEquals(3, SqlStatementCounter.count());
+    }
+
+    // 30 operations on two carts: products and carts are read once, every kind of write is one JDBC batch
+    @Test
+    void applyOperationsShouldReadOnceAndBatchWrites() {
+        Cart firstCart = cartService.getSingleCartById(cartIds.get(0));
+        Cart secondCart = cartService.getSingleCartById(cartIds.get(1));
+        List<CartOperationRequest> operations = new ArrayList<>();
+        for (int i = 0; i < 27; i++) {
+            Cart cart = i % 2 == 0 ? firstCart : secondCart;
+            operations.add(getOperation(CartOperationType.ADD_SINGLE_PRODUCT, cart.getAddedProducts().get(1).getId()));
+        }
+        operations.add(getOperation(CartOperationType.REMOVE_PRODUCT, firstCart.getAddedProducts().get(0).getId()));
+        operations.add(getOperation(CartOperationType.REMOVE_SINGLE_PRODUCT, secondCart.getAddedProducts().get(0).getId()));
+        CartOperationRequest addProducts = new CartOperationRequest();
+        addProducts.setType(CartOperationType.ADD_PRODUCTS);
+        addProducts.setCartId(secondCart.getId());
+        addProducts.setAddedProducts(List.of(getProduct("Banana", 250, 1)));
+        operations.add(addProducts);
+        SqlStatementCounter.clear();
+
+        cartService.applyOperations(operations);
+        // select products with carts, select lines of the cart getting products, insert, update products,
+        // update carts, delete products, select products of both carts
+        assertEquals(7, SqlStatementCounter.count());
+    }
+
+    private CartOperationRequest getOperation(CartOperationType type, long productId) {
+        CartOperationRequest operation = new CartOperationRequest();
+        operation.setType(type);
+        operation.setProductId(productId);
+        return operation;
+    }
+
+    // Apple with quantity 1
+    private long getFirstProductId() {
+        long productId = cartService.getSingleCartById(cartIds.get(0)).getAddedProducts().get(0).getId();
+        SqlStatementCounter.clear();
+        return productId;
+    }
+
+    // Orange with quantity 2
+    private long getSecondProductId() {
+        long productId = cartService.getSingleCartById(cartIds.get(0)).getAddedProducts().get(1).getId();
+        SqlStatementCounter.clear();
+        return productId;
+    }
+}
@@ -3,10 +3,14 @@ package org.example.service;
 import org.example.entity.Cart;
 import org.example.entity.Product;
 import org.example.repository.CartRepository;
+import org.example.request.CartOperationRequest;
+import org.example.request.CartOperationType;
 import org.example.request.CreateCartRequest;
 import org.example.request.CreateProductRequest;
 import org.example.request.UpdateCartRequest;
+import org.example.response.BulkCartResponse;
 import org.example.response.CartResponse;
+import org.example.response.CartSummaryResponse;
 import org.example.response.ProductResponse;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -16,6 +20,9 @@ import org.springframework.boot.test.context.SpringBootTest;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -96,16 +103,16 @@ class CartServiceTest {
     private static CreateProductRequest getApple() {
         CreateProductRequest createProductRequest = new CreateProductRequest();
         createProductRequest.setProductName("Apple");
-        createProductRequest.setProductPrice(1.25d);
-        createProductRequest.setProductQuantity(1d);
+        createProductRequest.setProductPrice(125);
+        createProductRequest.setProductQuantity(1);
         return createProductRequest;
     }
 
     private static CreateProductRequest getOrange() {
         CreateProductRequest createProductRequest = new CreateProductRequest();
         createProductRequest.setProductName("Orange");
-        createProductRequest.setProductPrice(2.50d);
-        createProductRequest.setProductQuantity(2d);
+        createProductRequest.setProductPrice(250);
+        createProductRequest.setProductQuantity(2);
         return createProductRequest;
     }
 
@@ -127,7 +134,7 @@ class CartServiceTest {
 
         List<CreateProductRequest> productList = new ArrayList<>();
         productList.add(GetProductForProductList());
-        productList.get(0).setProductQuantity(0d);
+        productList.get(0).setProductQuantity(0);
         updateCartRequest.setAddedProducts(productList);
 
         assertThrows(IllegalArgumentException.class, () -> cartService.addProduct(updateCartRequest));
@@ -155,8 +162,8 @@ class CartServiceTest {
 
     private static CreateProductRequest GetProductForProductList() {
         CreateProductRequest createProductRequest = new CreateProductRequest();
-        createProductRequest.setProductQuantity(1d);
-        createProductRequest.setProductPrice(2.5d);
+        createProductRequest.setProductQuantity(1);
+        createProductRequest.setProductPrice(250);
         createProductRequest.setProductName("Banana");
         return createProductRequest;
     }
@@ -183,6 +190,60 @@ class CartServiceTest {
         cartService.deleteCart(cartResponse.getId());
     }
 
+    @Test
+    void addProductWithSameNameAndPriceShouldMergeIntoExistingLine() {
+        Cart cart = cartService.createCart(GetCartWithNumberOfProducts(1));
+        long appleId = cart.getAddedProducts().get(0).getId();
+        CreateProductRequest cheaperApple = getApple();
+        cheaperApple.setProductPrice(100);
+
+        Cart changedCart = cartService.addProduct(UpdateCartRequest.builder()
+                .id(cart.getId())
+                .addedProducts(List.of(getApple(), getApple(), GetProductForProductList(), cheaperApple))
+                .build());
+
+        // The answer names the lines that were added to or created, in request order
+        assertThat(changedCart.getAddedProducts(), hasSize(3));
+        assertEquals(appleId, changedCart.getAddedProducts().get(0).getId());
+        assertEquals(3, changedCart.getAddedProducts().get(0).getProductQuantity());
+        CartResponse cartResponse = new CartResponse(cartService.getSingleCartById(cart.getId()));
+        assertThat(cartResponse.getAddedProducts(), hasSize(3));
+        assertEquals(3, cartResponse.getAddedProducts().get(0).getProductQuantity());
+        assertEquals(3 * 125 + 250 + 100, cartResponse.getTotalPrice());
+        cartService.deleteCart(cart.getId());
+    }
+
+    @Test
+    void applyOperationsShouldMergeAddedProductsIntoExistingLines() {
+        Cart cart = cartService.createCart(GetCartWithNumberOfProducts(2));
+        long orangeId = cart.getAddedProducts().get(1).getId();
+        CartOperationRequest addApples = new CartOperationRequest();
+        addApples.setType(CartOperationType.ADD_PRODUCTS);
+        addApples.setCartId(cart.getId());
+        addApples.setAddedProducts(List.of(getApple(), GetProductForProductList()));
+        CartOperationRequest addOranges = new CartOperationRequest();
+        addOranges.setType(CartOperationType.ADD_PRODUCTS);
+        addOranges.setCartId(cart.getId());
+        addOranges.setAddedProducts(List.of(getOrange(), GetProductForProductList()));
+
+        // The orange line is removed before oranges are added again, they get a new line
+        BulkCartResponse bulkCartResponse = cartService.applyOperations(List.of(
+                addApples,
+                getOperation(CartOperationType.REMOVE_PRODUCT, orangeId),
+                addOranges));
+
+        List<ProductResponse> lines = bulkCartResponse.getCarts().get(0).getAddedProducts();
+        assertThat(lines, hasSize(3));
+        assertEquals("Apple", lines.get(0).getProductName());
+        assertEquals(2, lines.get(0).getProductQuantity());
+        assertEquals("Banana", lines.get(1).getProductName());
+        assertEquals(2, lines.get(1).getProductQuantity());
+        assertEquals("Orange", lines.get(2).getProductName());
+        assertNotEquals(orangeId, lines.get(2).getId());
+        assertEquals(2 * 125 + 2 * 250 + 2 * 250, bulkCartResponse.getCarts().get(0).getTotalPrice());
+        cartService.deleteCart(cart.getId());
+    }
+
     @Test
     void addSingleProductShouldIncreaseQuantityByOne() {
         Cart cart = cartService.createCart(GetCartWithNumberOfProducts(1));
@@ -205,7 +266,7 @@ class CartServiceTest {
 
         long cartId = cartResponse.getId();
         long productId = cartResponse.getAddedProducts().get(0).getId();
-        double nominalPrice = cartResponse.getAddedProducts().get(0).getProductPrice();
+        long nominalPrice = cartResponse.getAddedProducts().get(0).getProductPrice();
         cartService.addSingleProduct(productId);
 
         cart = cartService.getSingleCartById(cartId);
@@ -213,6 +274,31 @@ class CartServiceTest {
         assertEquals(nominalPrice * 2, cartResponse.getTotalPrice());
         cartService.deleteCart(cartResponse.getId());
     }
+    @Test
+    void concurrentAddSingleProductShouldNotLoseUpdates() throws Exception {
+        Cart cart = cartService.createCart(GetCartWithNumberOfProducts(1));
+        CartResponse cartResponse = new CartResponse(cart);
+        long cartId = cartResponse.getId();
+        long productId = cartResponse.getAddedProducts().get(0).getId();
+        long nominalPrice = cartResponse.getAddedProducts().get(0).getProductPrice();
+
+        int numberOfClicks = 40;
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < numberOfClicks; i++) {
+            futures.add(executorService.submit(() -> cartService.addSingleProduct(productId)));
+        }
+        for (Future<String> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        cartResponse = new CartResponse(cartService.getSingleCartById(cartId));
+        assertEquals(1 + numberOfClicks, cartResponse.getAddedProducts().get(0).getProductQuantity());
+        assertEquals(nominalPrice * (1 + numberOfClicks), cartResponse.getTotalPrice());
+        cartService.deleteCart(cartId);
+    }
+
     @Test
     void addSingleProductShouldThrowWhenProductDoesNotExist() {
         assertThrows(IllegalArgumentException.class, () -> cartService.addSingleProduct(made_up_id));
@@ -243,12 +329,14 @@ class CartServiceTest {
     }
 
     @Test
-    void setTotalPriceToZeroShouldSetZeroTotalPrice() {
+    void clearedCartShouldHaveZeroTotalPriceAndNewVersion() {
         Cart cart = cartService.createCart(GetCartWithNumberOfProducts(1));
         CartResponse cartResponse = new CartResponse(cart);
 
         long cartId = cartResponse.getId();
-        cartService.setTotalPriceToZero(cartId);
+        long version = cartService.getCartVersion(cartId).version();
+        cartService.clearCart(cartId);
+        assertNotEquals(version, cartService.getCartVersion(cartId).version());
         cart = cartService.getSingleCartById(cartId);
         cartResponse = new CartResponse(cart);
         assertEquals(0, cartResponse.getTotalPrice());
@@ -295,6 +383,221 @@ class CartServiceTest {
         assertThrows(IllegalArgumentException.class, () -> cartService.deleteSingleProductFromCart(made_up_id));
     }
 
+    @Test
+    void getCartResponseByIdShouldServeRepeatedReadsFromCache() {
+        Cart cart = cartService.createCart(GetCartWithNumberOfProducts(2));
+        long cartId = cart.getId();
+
+        CartResponse firstRead = cartService.getCartResponseById(cartId);
+        SqlStatementCounter.clear();
+        CartResponse secondRead = cartService.getCartResponseById(cartId);
+        assertEquals(0, SqlStatementCounter.count());
+        assertEquals(firstRead.getTotalPrice(), secondRead.getTotalPrice());
+        cartService.deleteCart(cartId);
+    }
+
+    @Test
+    void getCartResponseByIdShouldSeeChangesAfterMutations() {
+        Cart cart = cartService.createCart(GetCartWithNumberOfProducts(1));
+        long cartId = cart.getId();
+        long productId = cart.getAddedProducts().get(0).getId();
+
+        cartService.getCartResponseById(cartId);
+        cartService.addSingleProduct(productId);
+        assertEquals(2, cartService.getCartResponseById(cartId).getAddedProducts().get(0).getProductQuantity());
+
+        cartService.deleteSingleProductFromCart(productId);
+        assertEquals(1, cartService.getCartResponseById(cartId).getAddedProducts().get(0).getProductQuantity());
+
+        UpdateCartRequest updateCartRequest = UpdateCartRequest.builder()
+                .id(cartId)
+                .addedProducts(List.of(GetProductForProductList()))
+                .build();
+        cartService.addProduct(updateCartRequest);
+        assertThat(cartService.getCartResponseById(cartId).getAddedProducts(), hasSize(2));
+
+        cartService.deleteProductFromCart(productId);
+        assertThat(cartService.getCartResponseById(cartId).getAddedProducts(), hasSize(1));
+
+        cartService.clearCart(cartId);
+        assertThat(cartService.getCartResponseById(cartId).getAddedProducts(), hasSize(0));
+        assertEquals(0, cartService.getCartResponseById(cartId).getTotalPrice());
+
+        cartService.deleteCart(cartId);
+        assertThrows(IllegalArgumentException.class, () -> cartService.getCartResponseById(cartId));
+    }
+
+    private static CartOperationRequest getOperation(CartOperationType type, long productId) {
+        CartOperationRequest operation = new CartOperationRequest();
+        operation.setType(type);
+        operation.setProductId(productId);
+        return operation;
+    }
+
+    @Test
+    void applyOperationsShouldApplyAllOperationsInOrder() {
+        Cart firstCart = cartService.createCart(GetCartWithNumberOfProducts(2));
+        Cart secondCart = cartService.createCart(GetCartWithNumberOfProducts(1));
+        long appleId = firstCart.getAddedProducts().get(0).getId();
+        long orangeId = firstCart.getAddedProducts().get(1).getId();
+        CartOperationRequest addProducts = new CartOperationRequest();
+        addProducts.setType(CartOperationType.ADD_PRODUCTS);
+        addProducts.setCartId(secondCart.getId());
+        addProducts.setAddedProducts(List.of(GetProductForProductList()));
+
+        BulkCartResponse bulkCartResponse = cartService.applyOperations(List.of(
+                getOperation(CartOperationType.ADD_SINGLE_PRODUCT, appleId),
+                getOperation(CartOperationType.ADD_SINGLE_PRODUCT, appleId),
+                getOperation(CartOperationType.REMOVE_SINGLE_PRODUCT, orangeId),
+                addProducts,
+                getOperation(CartOperationType.REMOVE_PRODUCT, secondCart.getAddedProducts().get(0).getId())));
+
+        assertThat(bulkCartResponse.getResults(), hasSize(5));
+        assertEquals(2, bulkCartResponse.getResults().get(2).getIndex());
+        assertEquals("Single product removed from cart successfully", bulkCartResponse.getResults().get(2).getMessage());
+        assertThat(bulkCartResponse.getCarts(), hasSize(2));
+        // Apple 3 x 125 + Orange 1 x 250
+        CartResponse firstCartResponse = cartService.getCartResponseById(firstCart.getId());
+        assertEquals(625, firstCartResponse.getTotalPrice());
+        assertEquals(3, firstCartResponse.getAddedProducts().get(0).getProductQuantity());
+        assertEquals(firstCartResponse.getTotalPrice(), bulkCartResponse.getCarts().get(0).getTotalPrice());
+        // Apple removed, Banana 1 x 250 added
+        CartResponse secondCartResponse = cartService.getCartResponseById(secondCart.getId());
+        assertEquals(250, secondCartResponse.getTotalPrice());
+        assertThat(secondCartResponse.getAddedProducts(), hasSize(1));
+        assertEquals("Banana", secondCartResponse.getAddedProducts().get(0).getProductName());
+        cartService.deleteCart(firstCart.getId());
+        cartService.deleteCart(secondCart.getId());
+    }
+
+    @Test
+    void applyOperationsShouldRollBackEveryOperationWhenOneFails() {
+        Cart cart = cartService.createCart(GetCartWithNumberOfProducts(1));
+        long appleId = cart.getAddedProducts().get(0).getId();
+
+        CartOperationException exception = assertThrows(CartOperationException.class, () -> cartService.applyOperations(List.of(
+                getOperation(CartOperationType.ADD_SINGLE_PRODUCT, appleId),
+                getOperation(CartOperationType.ADD_SINGLE_PRODUCT, made_up_id))));
+
+        assertEquals(1, exception.getIndex());
+        assertEquals("Product does not exist", exception.getMessage());
+        CartResponse cartResponse = cartService.getCartResponseById(cart.getId());
+        assertEquals(125, cartResponse.getTotalPrice());
+        assertEquals(1, cartResponse.getAddedProducts().get(0).getProductQuantity());
+        cartService.deleteCart(cart.getId());
+    }
+
+    @Test
+    void applyOperationsShouldNotFindProductRemovedEarlierInBatch() {
+        Cart cart = cartService.createCart(GetCartWithNumberOfProducts(1));
+        long appleId = cart.getAddedProducts().get(0).getId();
+
+        CartOperationException exception = assertThrows(CartOperationException.class, () -> cartService.applyOperations(List.of(
+                getOperation(CartOperationType.REMOVE_SINGLE_PRODUCT, appleId),
+                getOperation(CartOperationType.ADD_SINGLE_PRODUCT, appleId))));
+
+        assertEquals(1, exception.getIndex());
+        assertThat(cartService.getCartResponseById(cart.getId()).getAddedProducts(), hasSize(1));
+        cartService.deleteCart(cart.getId());
+    }
+
+    @Test
+    void applyOperationsShouldThrowWhenBatchIsTooLarge() {
+        List<CartOperationRequest> operations = new ArrayList<>();
+        for (int i = 0; i <= CartService.MAX_BATCH_OPERATIONS; i++) {
+            operations.add(getOperation(CartOperationType.ADD_SINGLE_PRODUCT, made_up_id));
+        }
+        assertThrows(IllegalArgumentException.class, () -> cartService.applyOperations(operations));
+    }
+
+    @Test
+    void getCartVersionShouldChangeWithEveryMutation() {
+        Cart cart = cartService.createCart(GetCartWithNumberOfProducts(2));
+        long productId = cart.getAddedProducts().get(1).getId();
+        long createdVersion = cartService.getCartVersion(cart.getId()).version();
+        assertEquals(createdVersion, cartService.getCartResponseById(cart.getId()).getVersion());
+
+        cartService.addSingleProduct(productId);
+        long addedVersion = cartService.getCartVersion(cart.getId()).version();
+        assertTrue(addedVersion > createdVersion);
+        assertEquals(addedVersion, cartService.getCartResponseById(cart.getId()).getVersion());
+
+        cartService.deleteSingleProductFromCart(productId);
+        assertTrue(cartService.getCartVersion(cart.getId()).version() > addedVersion);
+        cartService.deleteCart(cart.getId());
+    }
+
+    @Test
+    void getCartVersionShouldThrowWhenIdDoesNotExist() {
+        assertThrows(IllegalArgumentException.class, () -> cartService.getCartVersion(made_up_id));
+    }
+
+    @Test
+    void getCartsAfterShouldReturnNextCartsInIdOrder() {
+        long firstId = cartService.createCart(GetCartWithNumberOfProducts(1)).getId();
+        long secondId = cartService.createCart(GetCartWithNumberOfProducts(2)).getId();
+        long thirdId = cartService.createCart(GetCartWithNumberOfProducts(1)).getId();
+
+        List<Cart> page = cartService.getCartsAfter(firstId, 2);
+        assertThat(page, hasSize(2));
+        assertEquals(secondId, page.get(0).getId());
+        assertEquals(thirdId, page.get(1).getId());
+        assertThat(page.get(0).getAddedProducts(), hasSize(2));
+
+        cartService.deleteCart(firstId);
+        cartService.deleteCart(secondId);
+        cartService.deleteCart(thirdId);
+    }
+
+    @Test
+    void getCartsAfterShouldThrowWhenSizeIsOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> cartService.getCartsAfter(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> cartService.getCartsAfter(0, CartService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void getCartSummariesAfterShouldCountLinesAndFilterByTotalPrice() {
+        long firstId = cartService.createCart(GetCartWithNumberOfProducts(1)).getId();
+        Cart secondCart = cartService.createCart(GetCartWithNumberOfProducts(2));
+        long thirdId = cartService.createCart(GetCartWithNumberOfProducts(1)).getId();
+
+        List<CartSummaryResponse> all = cartService.getCartSummariesAfter(firstId - 1, 0, Long.MAX_VALUE, 3);
+        assertThat(all, hasSize(3));
+        assertEquals(firstId, all.get(0).getId());
+        assertEquals(1, all.get(0).getLineCount());
+        assertEquals(secondCart.getTotalPrice(), all.get(1).getTotalPrice());
+        assertEquals(2, all.get(1).getLineCount());
+
+        List<CartSummaryResponse> expensive = cartService.getCartSummariesAfter(firstId - 1, secondCart.getTotalPrice(), secondCart.getTotalPrice(), 3);
+        assertThat(expensive, hasSize(1));
+        assertEquals(secondCart.getId(), expensive.get(0).getId());
+
+        cartService.deleteCart(firstId);
+        cartService.deleteCart(secondCart.getId());
+        cartService.deleteCart(thirdId);
+    }
+
+    @Test
+    void getCartSummariesAfterShouldThrowWhenArgumentsAreOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> cartService.getCartSummariesAfter(0, 0, Long.MAX_VALUE, 0));
+        assertThrows(IllegalArgumentException.class, () -> cartService.getCartSummariesAfter(0, 200, 100, 10));
+    }
+
+    @Test
+    void streamAllCartsShouldVisitEveryCartInIdOrder() {
+        long firstId = cartService.createCart(GetCartWithNumberOfProducts(1)).getId();
+        long secondId = cartService.createCart(GetCartWithNumberOfProducts(2)).getId();
+
+        List<CartResponse> streamed = new ArrayList<>();
+        cartService.streamAllCarts(cart -> streamed.add(new CartResponse(cart)));
+        List<Long> streamedIds = streamed.stream().map(CartResponse::getId).toList();
+        assertTrue(streamedIds.indexOf(firstId) < streamedIds.indexOf(secondId));
+        assertThat(streamed.get(streamedIds.indexOf(secondId)).getAddedProducts(), hasSize(2));
+
+        cartService.deleteCart(firstId);
+        cartService.deleteCart(secondId);
+    }
+
     //SOME MOCKITO 2 TESTS
     @Test
     void getAllCartsShouldReturnCorrectSize() {
@@ -0,0 +1,216 @@
+package org.example.service;
+
+import org.example.entity.Cart;
+import org.example.entity.Product;
+import org.example.repository.StockLedgerRepository;
+import org.example.request.CartOperationRequest;
+import org.example.request.CartOperationType;
+import org.example.request.CreateCartRequest;
+import org.example.request.CreateCatalogItemRequest;
+import org.example.request.CreateProductRequest;
+import org.example.request.UpdateCartRequest;
+import org.example.response.CatalogItemResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class InventoryServiceTest {
+
+    final static long made_up_id = 9999;
+
+    @Autowired
+    InventoryService inventoryService;
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    StockLedgerRepository stockLedgerRepository;
+
+    private CatalogItemResponse createItem(String sku, int stock) {
+        CreateCatalogItemRequest createCatalogItemRequest = new CreateCatalogItemRequest();
+        createCatalogItemRequest.setSku(sku);
+        createCatalogItemRequest.setItemName("Catalog " + sku);
+        createCatalogItemRequest.setItemPrice(300);
+        createCatalogItemRequest.setInitialStock(stock);
+        return inventoryService.createItem(createCatalogItemRequest);
+    }
+
+    private static CreateProductRequest getCatalogLine(long catalogItemId, int quantity) {
+        CreateProductRequest createProductRequest = new CreateProductRequest();
+        createProductRequest.setCatalogItemId(catalogItemId);
+        createProductRequest.setProductQuantity(quantity);
+        return createProductRequest;
+    }
+
+    private static CreateProductRequest getFreeFormLine(int quantity) {
+        CreateProductRequest createProductRequest = new CreateProductRequest();
+        createProductRequest.setProductName("Apple");
+        createProductRequest.setProductPrice(125);
+        createProductRequest.setProductQuantity(quantity);
+        return createProductRequest;
+    }
+
+    private Cart createCart(CreateProductRequest... products) {
+        List<CreateProductRequest> addedProducts = new ArrayList<>(List.of(products));
+        return cartService.createCart(CreateCartRequest.builder().addedProducts(addedProducts).build());
+    }
+
+    private long available(long catalogItemId) {
+        return inventoryService.getItem(catalogItemId).getAvailableStock();
+    }
+
+    @Test
+    void catalogLineShouldTakeNameAndPriceFromItemAndReserveStock() {
+        CatalogItemResponse item = createItem("SKU-NAME", 10);
+
+        Cart cart = createCart(getCatalogLine(item.getId(), 3), getFreeFormLine(1));
+
+        Product line = cart.getAddedProducts().get(0);
+        assertEquals("Catalog SKU-NAME", line.getProductName());
+        assertEquals(300, line.getProductPrice());
+        assertEquals(item.getId(), line.getCatalogItemId());
+        assertEquals(1025, cart.getTotalPrice());
+        assertEquals(7, available(item.getId()));
+        assertEquals(7, stockLedgerRepository.sumDeltas(item.getId()));
+        cartService.deleteCart(cart.getId());
+        assertEquals(10, available(item.getId()));
+    }
+
+    @Test
+    void createItemShouldThrowForDuplicateSku() {
+        createItem("SKU-DUPLICATE", 1);
+        assertThrows(IllegalArgumentException.class, () -> createItem("SKU-DUPLICATE", 1));
+    }
+
+    @Test
+    void catalogLineShouldThrowForMissingItem() {
+        assertThrows(IllegalArgumentException.class, () -> createCart(getCatalogLine(made_up_id, 1)));
+    }
+
+    @Test
+    void reservingMoreThanStockShouldFailAndKeepStock() {
+        CatalogItemResponse item = createItem("SKU-SHORT", 2);
+
+        assertThrows(IllegalArgumentException.class, () -> createCart(getCatalogLine(item.getId(), 3)));
+
+        assertEquals(2, available(item.getId()));
+        assertEquals(2, stockLedgerRepository.sumDeltas(item.getId()));
+    }
+
+    // The catalog line is reserved before the zero quantity line fails, the rollback gives the units back
+    @Test
+    void rolledBackReservationShouldGiveUnitsBack() {
+        CatalogItemResponse item = createItem("SKU-ROLLBACK", 5);
+        Cart cart = createCart(getFreeFormLine(1));
+        UpdateCartRequest updateCartRequest = UpdateCartRequest.builder()
+                .id(cart.getId())
+                .addedProducts(new ArrayList<>(List.of(getCatalogLine(item.getId(), 2), getFreeFormLine(0))))
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> cartService.addProduct(updateCartRequest));
+
+        assertEquals(5, available(item.getId()));
+        assertEquals(5, stockLedgerRepository.sumDeltas(item.getId()));
+        cartService.deleteCart(cart.getId());
+    }
+
+    @Test
+    void singleClicksAndRemovalsShouldReserveAndReleaseStock() {
+        CatalogItemResponse item = createItem("SKU-CLICKS", 4);
+        Cart cart = createCart(getCatalogLine(item.getId(), 1));
+        long lineId = cart.getAddedProducts().get(0).getId();
+
+        cartService.addSingleProduct(lineId);
+        cartService.addSingleProduct(lineId);
+        cartService.addSingleProduct(lineId);
+        assertEquals(0, available(item.getId()));
+        assertThrows(IllegalArgumentException.class, () -> cartService.addSingleProduct(lineId));
+        assertEquals(4, cartService.getSingleCartById(cart.getId()).getAddedProducts().get(0).getProductQuantity());
+
+        cartService.deleteSingleProductFromCart(lineId);
+        assertEquals(1, available(item.getId()));
+        cartService.deleteProductFromCart(lineId);
+        assertEquals(4, available(item.getId()));
+        assertEquals(4, stockLedgerRepository.sumDeltas(item.getId()));
+        cartService.deleteCart(cart.getId());
+    }
+
+    @Test
+    void clearCartAndBatchOperationsShouldReleaseStock() {
+        CatalogItemResponse item = createItem("SKU-CLEAR", 10);
+        Cart cart = createCart(getCatalogLine(item.getId(), 2), getFreeFormLine(1));
+        long lineId = cart.getAddedProducts().get(0).getId();
+
+        CartOperationRequest addSingleProduct = new CartOperationRequest();
+        addSingleProduct.setType(CartOperationType.ADD_SINGLE_PRODUCT);
+        addSingleProduct.setProductId(lineId);
+        CartOperationRequest addProducts = new CartOperationRequest();
+        addProducts.setType(CartOperationType.ADD_PRODUCTS);
+        addProducts.setCartId(cart.getId());
+        addProducts.setAddedProducts(new ArrayList<>(List.of(getCatalogLine(item.getId(), 3))));
+        cartService.applyOperations(List.of(addSingleProduct, addProducts));
+        assertEquals(4, available(item.getId()));
+
+        // The added units went into the existing catalog line
+        assertEquals(2, cartService.clearCart(cart.getId()));
+        assertEquals(10, available(item.getId()));
+        assertEquals(10, stockLedgerRepository.sumDeltas(item.getId()));
+        cartService.deleteCart(cart.getId());
+    }
+
+    @Test
+    void restockShouldAddUnits() {
+        CatalogItemResponse item = createItem("SKU-RESTOCK", 0);
+
+        assertEquals("Catalog item restocked successfully", inventoryService.restock(item.getId(), 5));
+
+        assertEquals(5, available(item.getId()));
+        assertThrows(IllegalArgumentException.class, () -> inventoryService.restock(item.getId(), 0));
+        assertThrows(IllegalArgumentException.class, () -> inventoryService.restock(made_up_id, 1));
+    }
+
+    // Flash sale: far more buyers than units of one item, exactly the stock gets sold
+    @Test
+    void concurrentBuyersShouldGetExactlyTheStock() throws Exception {
+        CatalogItemResponse item = createItem("SKU-FLASH", 50);
+        AtomicLong sold = new AtomicLong();
+        List<Long> cartIds = new ArrayList<>();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int buyer = 0; buyer < 80; buyer++) {
+            futures.add(executorService.submit(() -> {
+                try {
+                    Cart cart = createCart(getCatalogLine(item.getId(), 1));
+                    sold.incrementAndGet();
+                    return cart.getId();
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }));
+        }
+        for (Future<Long> future : futures) {
+            Long cartId = future.get();
+            if (cartId != null) {
+                cartIds.add(cartId);
+            }
+        }
+        executorService.shutdown();
+
+        assertEquals(50, sold.get());
+        assertEquals(0, available(item.getId()));
+        assertEquals(0, stockLedgerRepository.sumDeltas(item.getId()));
+        cartIds.forEach(cartService::deleteCart);
+        assertEquals(50, available(item.getId()));
+    }
+}
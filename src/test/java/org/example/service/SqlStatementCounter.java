@@ -0,0 +1,36 @@
+package org.example.service;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Records every statement Hibernate prepares, a JDBC batch is prepared once no matter how many rows it carries.
+// Registered through hibernate.session_factory.statement_inspector in the test properties
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        statements.add(sql);
+        return sql;
+    }
+
+    public static void clear() {
+        statements.clear();
+    }
+
+    // Sequence calls are left out, with pooled ids they only happen once per block of 50
+    public static long count() {
+        return statements.stream().filter(sql -> !sql.contains("_seq")).count();
+    }
+
+    public static long count(String statementType) {
+        return statements.stream().filter(sql -> sql.toLowerCase().startsWith(statementType)).count();
+    }
+
+    public static List<String> getStatements() {
+        return List.copyOf(statements);
+    }
+}
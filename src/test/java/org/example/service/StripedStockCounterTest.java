@@ -0,0 +1,73 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedStockCounterTest {
+
+    @Test
+    void newCounterShouldHoldAllUnitsOverItsStripes() {
+        assertEquals(101, new StripedStockCounter(8, 101).available());
+        assertEquals(3, new StripedStockCounter(8, 3).available());
+    }
+
+    @Test
+    void reservationShouldTakeUnitsFromSeveralStripes() {
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+
+        assertTrue(counter.tryReserve(9));
+        assertEquals(1, counter.available());
+    }
+
+    @Test
+    void reservationBiggerThanStockShouldTakeNothing() {
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+
+        assertFalse(counter.tryReserve(11));
+        assertEquals(10, counter.available());
+    }
+
+    @Test
+    void releasedUnitsShouldBeReservableAgain() {
+        StripedStockCounter counter = new StripedStockCounter(4, 1);
+        assertTrue(counter.tryReserve(1));
+        assertFalse(counter.tryReserve(1));
+
+        counter.release(1);
+
+        assertTrue(counter.tryReserve(1));
+    }
+
+    // Many threads after the same few units, every unit goes to exactly one of them
+    @Test
+    void concurrentReservationsShouldNeverOversell() throws Exception {
+        StripedStockCounter counter = new StripedStockCounter(8, 1000);
+        AtomicInteger reserved = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 16; thread++) {
+            futures.add(executorService.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    if (counter.tryReserve(1)) {
+                        reserved.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executorService.shutdown();
+
+        assertEquals(1000, reserved.get());
+        assertEquals(0, counter.available());
+    }
+}